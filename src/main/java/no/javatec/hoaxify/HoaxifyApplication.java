@@ -5,13 +5,15 @@ import no.javatec.hoaxify.user.UserService;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
 
 import java.util.stream.IntStream;
 
 //@SpringBootApplication(exclude = SecurityAutoConfiguration.class)
-@SpringBootApplication
+// the reactive feed reuses the JDBC datasource settings, see R2dbcConfiguration
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class HoaxifyApplication {
 
     public static void main(String[] args) {
@@ -1,10 +1,14 @@
 package no.javatec.hoaxify.configuration;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
 import java.text.MessageFormat;
+import java.time.Duration;
 import java.util.Map;
 
 @Data
@@ -16,6 +20,17 @@ public class AppConfiguration {
     private String profileImagesFolder = "profile";
     private String attachmentsFolder = "attachments";
     private Map<String, String> labels;
+    private Storage storage = new Storage();
+    private UploadProcessing uploadProcessing = new UploadProcessing();
+    private boolean virtualThreads;
+    private int hoaxJsonCacheSize = 10_000;
+    // directory of the hoax search index; kept in memory and rebuilt at startup when not set
+    private String searchIndexPath;
+    private RateLimit rateLimit = new RateLimit();
+    private LoginThrottle loginThrottle = new LoginThrottle();
+    private PasswordHashing passwordHashing = new PasswordHashing();
+    private Timeline timeline = new Timeline();
+    private WriteBehind writeBehind = new WriteBehind();
 
     public String getFullProfileImagesPath() {
         return MessageFormat.format("{0}/{1}", this.uploadPath, this.profileImagesFolder);
@@ -24,4 +39,108 @@ public class AppConfiguration {
     public String getFullAttachmentsPath() {
         return MessageFormat.format("{0}/{1}", this.uploadPath, this.attachmentsFolder);
     }
+
+    @Data
+    public static class Storage {
+
+        public enum Type {LOCAL, S3}
+
+        private Type type = Type.LOCAL;
+        private S3 s3 = new S3();
+    }
+
+    @Data
+    public static class UploadProcessing {
+
+        private int threads = 2;
+        // spooled uploads waiting for a thread; further uploads are rejected with 503
+        private int queueCapacity = 100;
+        // metadata of concurrent uploads is inserted together, up to this many rows per batch
+        private int metadataBatchSize = 64;
+        // how long the first upload of a batch waits for others to join it
+        private Duration metadataBatchDelay = Duration.ofMillis(2);
+        // how long an upload waits for its metadata to be inserted before it is rejected with 503
+        private Duration metadataInsertTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class RateLimit {
+
+        private boolean enabled = true;
+        // per logged in user, on POST /api/1.0/hoaxes/**; a batch takes one token per hoax
+        private Bucket user = new Bucket(20, 2);
+        // per client address, on the same endpoints, whether logged in or not
+        private Bucket ip = new Bucket(60, 10);
+        // client addresses with a bucket of their own; new addresses share one bucket while this many are tracked
+        private int maxIpBuckets = 100_000;
+        // uploads being received at once across all clients
+        private int maxConcurrentUploads = 16;
+    }
+
+    @Data
+    public static class LoginThrottle {
+
+        // failed logins per username and client address, and per client address, before attempts are delayed
+        private int freeAttempts = 5;
+        // doubles with every further failure, up to maxDelay
+        private Duration baseDelay = Duration.ofSeconds(1);
+        private Duration maxDelay = Duration.ofMinutes(15);
+        // keys tracked at most; failures of new keys are not counted while it is full
+        private int maxEntries = 100_000;
+    }
+
+    @Data
+    public static class PasswordHashing {
+
+        // fixed BCrypt cost; when not set, the cost is calibrated at startup to take about targetHashTime
+        private Integer bcryptStrength;
+        private Duration targetHashTime = Duration.ofMillis(250);
+        // hashing pool, kept below the core count so request threads always have CPU left
+        private int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        // hash operations waiting for a thread; further signups and logins are rejected with 503
+        private int queueCapacity = 64;
+    }
+
+    @Data
+    public static class Timeline {
+
+        // hoax ids held per home timeline; older pages are read from the database
+        private int capacity = 800;
+        // authors with more followers are merged into timelines on read instead of pushed on write
+        private int fanOutLimit = 1000;
+        // home timelines kept in memory, least recently used are dropped
+        private int maxTimelines = 10_000;
+    }
+
+    @Data
+    public static class WriteBehind {
+
+        // acknowledge new hoaxes once appended to the log and insert them in batches
+        private boolean enabled;
+        private String logPath = "hoaxify-hoaxes.log";
+        // accepted hoaxes waiting to be inserted; further hoaxes are rejected with 503
+        private DataSize logSize = DataSize.ofMegabytes(64);
+        private int maxBatchSize = 500;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+
+        private int capacity;
+        private double refillPerSecond;
+    }
+
+    @Data
+    public static class S3 {
+
+        private String endpoint;
+        private String region = "us-east-1";
+        private String bucket;
+        private String accessKey;
+        private String secretKey;
+        // base URL the images are served from, e.g. the bucket website or a CDN in front of it
+        private String publicUrl;
+    }
 }
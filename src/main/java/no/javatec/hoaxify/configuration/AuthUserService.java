@@ -1,15 +1,17 @@
 package no.javatec.hoaxify.configuration;
 
 import lombok.RequiredArgsConstructor;
+import no.javatec.hoaxify.user.User;
 import no.javatec.hoaxify.user.UserRepository;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
-public class AuthUserService implements UserDetailsService {
+public class AuthUserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -21,4 +23,13 @@ public class AuthUserService implements UserDetailsService {
         }
         return user;
     }
+
+    // called after a successful login when the stored hash is outdated, with the password already rehashed
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        var user = (User) userDetails;
+        userRepository.updatePassword(user.getId(), newPassword);
+        user.setPassword(newPassword);
+        return user;
+    }
 }
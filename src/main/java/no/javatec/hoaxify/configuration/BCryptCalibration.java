@@ -0,0 +1,42 @@
+package no.javatec.hoaxify.configuration;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * Picks the BCrypt cost whose hash takes closest to a target time on this host. Each cost step doubles the
+ * work, so one measurement at a cheap cost is enough to extrapolate.
+ */
+final class BCryptCalibration {
+
+    static final int MIN_STRENGTH = 10;
+    static final int MAX_STRENGTH = 16;
+    private static final int PROBE_STRENGTH = 8;
+    private static final int PROBE_ROUNDS = 3;
+
+    private BCryptCalibration() {
+    }
+
+    static int strengthFor(Duration target) {
+        return strengthFor(target, probe());
+    }
+
+    static int strengthFor(Duration target, long probeNanos) {
+        var steps = Math.log((double) target.toNanos() / probeNanos) / Math.log(2);
+        var strength = PROBE_STRENGTH + (int) Math.round(steps);
+        return Math.max(MIN_STRENGTH, Math.min(MAX_STRENGTH, strength));
+    }
+
+    // fastest of a few rounds, the first one also pays for class loading and JIT
+    private static long probe() {
+        var encoder = new BCryptPasswordEncoder(PROBE_STRENGTH);
+        var best = Long.MAX_VALUE;
+        for (int i = 0; i < PROBE_ROUNDS; i++) {
+            var start = System.nanoTime();
+            encoder.encode("calibration");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
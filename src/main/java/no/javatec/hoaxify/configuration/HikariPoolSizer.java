@@ -0,0 +1,43 @@
+package no.javatec.hoaxify.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+/**
+ * Sizes the Hikari pool from the available cores, using the (cores * 2) + 1 rule of thumb,
+ * unless {@code spring.datasource.hikari.maximum-pool-size} is set explicitly.
+ */
+public class HikariPoolSizer implements BeanPostProcessor {
+
+    static final String MAXIMUM_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+
+    private final boolean explicitPoolSize;
+    private final int availableProcessors;
+
+    public HikariPoolSizer(Environment environment) {
+        this(Binder.get(environment).bind(MAXIMUM_POOL_SIZE, Integer.class).isBound(),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    HikariPoolSizer(boolean explicitPoolSize, int availableProcessors) {
+        this.explicitPoolSize = explicitPoolSize;
+        this.availableProcessors = availableProcessors;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource && !explicitPoolSize) {
+            var dataSource = (HikariDataSource) bean;
+            var poolSize = poolSize();
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSource.setMinimumIdle(poolSize);
+        }
+        return bean;
+    }
+
+    int poolSize() {
+        return availableProcessors * 2 + 1;
+    }
+}
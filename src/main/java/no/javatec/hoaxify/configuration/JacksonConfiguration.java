@@ -0,0 +1,16 @@
+package no.javatec.hoaxify.configuration;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfiguration {
+
+    // generates property accessors with LambdaMetafactory instead of reflective calls; picked up by Boot's ObjectMapper
+    @Bean
+    Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
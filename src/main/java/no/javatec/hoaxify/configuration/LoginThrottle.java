@@ -0,0 +1,106 @@
+package no.javatec.hoaxify.configuration;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts failed logins per username and client address pair, and per client address. Once a key has used its
+ * free attempts, every further failure doubles the time it is blocked. A username is only blocked together with
+ * the address that failed, so nobody can lock a user out from elsewhere. The map locks per bin, so unrelated keys
+ * never contend, and holds at most {@code maxEntries} keys; when it is full of keys that have not expired, failures
+ * of new keys go uncounted rather than the memory growing.
+ */
+@Component
+public class LoginThrottle {
+
+    private final int freeAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+    private final int maxEntries;
+    private final Map<String, Failures> failures = new ConcurrentHashMap<>();
+
+    public LoginThrottle(AppConfiguration appConfiguration) {
+        var config = appConfiguration.getLoginThrottle();
+        this.freeAttempts = config.getFreeAttempts();
+        this.baseDelayNanos = config.getBaseDelay().toNanos();
+        this.maxDelayNanos = config.getMaxDelay().toNanos();
+        this.maxEntries = config.getMaxEntries();
+    }
+
+    /**
+     * @return 0 when the attempt may go ahead, otherwise the nanoseconds until it may
+     */
+    public long blockedFor(String username, String address, long nowNanos) {
+        var blocked = blockedFor(userKey(username, address), nowNanos);
+        return address == null ? blocked : Math.max(blocked, blockedFor(addressKey(address), nowNanos));
+    }
+
+    public void failed(String username, String address, long nowNanos) {
+        failed(userKey(username, address), nowNanos);
+        if (address != null) {
+            failed(addressKey(address), nowNanos);
+        }
+    }
+
+    // the address keeps its count, a valid account must not clear failures made against others
+    public void succeeded(String username, String address) {
+        failures.remove(userKey(username, address));
+    }
+
+    @Scheduled(fixedRate = 60 * 1000)
+    public void evictExpired() {
+        var now = System.nanoTime();
+        failures.values().removeIf(entry -> now - entry.lastFailure > maxDelayNanos && now - entry.blockedUntil > 0);
+    }
+
+    private long blockedFor(String key, long nowNanos) {
+        var entry = failures.get(key);
+        return entry == null ? 0 : Math.max(0, entry.blockedUntil - nowNanos);
+    }
+
+    private void failed(String key, long nowNanos) {
+        if (failures.size() >= maxEntries && !failures.containsKey(key)) {
+            evictExpired();
+            if (failures.size() >= maxEntries) {
+                return;
+            }
+        }
+        failures.compute(key, (k, entry) -> {
+            var count = entry == null ? 1 : entry.count + 1;
+            var blockedUntil = count < freeAttempts ? nowNanos : nowNanos + delay(count - freeAttempts);
+            return new Failures(count, nowNanos, blockedUntil);
+        });
+    }
+
+    private long delay(int excess) {
+        var delay = baseDelayNanos;
+        for (int i = 0; i < excess && delay < maxDelayNanos; i++) {
+            delay <<= 1;
+        }
+        return Math.min(maxDelayNanos, delay);
+    }
+
+    private static String userKey(String username, String address) {
+        return "user:" + username + "@" + (address == null ? "" : address);
+    }
+
+    private static String addressKey(String address) {
+        return "address:" + address;
+    }
+
+    private static class Failures {
+
+        private final int count;
+        private final long lastFailure;
+        private final long blockedUntil;
+
+        private Failures(int count, long lastFailure, long blockedUntil) {
+            this.count = count;
+            this.lastFailure = lastFailure;
+            this.blockedUntil = blockedUntil;
+        }
+    }
+}
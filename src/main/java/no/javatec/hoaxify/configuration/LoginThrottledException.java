@@ -0,0 +1,15 @@
+package no.javatec.hoaxify.configuration;
+
+import lombok.Getter;
+import org.springframework.security.core.AuthenticationException;
+
+@Getter
+public class LoginThrottledException extends AuthenticationException {
+
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(long retryAfterSeconds) {
+        super("Too many failed logins");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
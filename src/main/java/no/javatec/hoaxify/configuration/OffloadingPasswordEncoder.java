@@ -0,0 +1,87 @@
+package no.javatec.hoaxify.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import no.javatec.hoaxify.error.ServiceUnavailableException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs password hashing on its own bounded pool, so a burst of signups and logins can only use that pool's
+ * threads worth of CPU. The calling request thread waits for the result; when the queue is full the call
+ * fails at once with {@link ServiceUnavailableException} instead of queueing up behind the burst.
+ */
+public class OffloadingPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    public OffloadingPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hashing-");
+        executor.initialize();
+
+        this.encodeTimer = hashTimer(meterRegistry, "encode");
+        this.matchesTimer = hashTimer(meterRegistry, "matches");
+        this.rejected = meterRegistry.counter("hoaxify.password.hashing.rejected");
+        meterRegistry.gauge("hoaxify.password.hashing.queue", executor,
+                pool -> pool.getThreadPoolExecutor().getQueue().size());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return offload(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return offload(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // only parses the stored hash
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T offload(Timer timer, Callable<T> hashing) {
+        try {
+            return executor.submit(() -> timer.recordCallable(hashing)).get();
+        } catch (TaskRejectedException e) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Too many password operations in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("hoaxify.password.hashing")
+                .description("Time spent hashing passwords, excluding time in the queue")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
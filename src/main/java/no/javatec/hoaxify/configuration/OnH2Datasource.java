@@ -0,0 +1,20 @@
+package no.javatec.hoaxify.configuration;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * Matches when the JDBC datasource is H2, either configured by URL or the embedded default when no URL is set.
+ * The reactive feed is only wired up then, since it reaches the database through r2dbc-h2.
+ */
+public class OnH2Datasource implements Condition {
+
+    static final String H2_URL_PREFIX = "jdbc:h2:";
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        var url = context.getEnvironment().getProperty("spring.datasource.url");
+        return url == null || url.startsWith(H2_URL_PREFIX);
+    }
+}
@@ -0,0 +1,51 @@
+package no.javatec.hoaxify.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@Slf4j
+@Configuration
+@Profile("prod")
+public class PersistenceConfiguration {
+
+    private static final List<String> REPORTED_H2_SETTINGS =
+            List.of("info.VERSION", "MV_STORE", "CACHE_SIZE", "QUERY_CACHE_SIZE");
+
+    @Bean
+    static BeanPostProcessor hikariPoolSizer(Environment environment) {
+        return new HikariPoolSizer(environment);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void reportPersistenceSettings(ApplicationReadyEvent event) {
+        var environment = event.getApplicationContext().getEnvironment();
+        var dataSource = event.getApplicationContext().getBean(DataSource.class);
+
+        log.info("Persistence settings: cores={}, ddl-auto={}",
+                Runtime.getRuntime().availableProcessors(),
+                environment.getProperty("spring.jpa.hibernate.ddl-auto", "none"));
+
+        if (dataSource instanceof HikariDataSource) {
+            var hikari = (HikariDataSource) dataSource;
+            log.info("Hikari pool '{}': url={}, maximumPoolSize={}, minimumIdle={}, connectionTimeout={}ms",
+                    hikari.getPoolName(), hikari.getJdbcUrl(), hikari.getMaximumPoolSize(),
+                    hikari.getMinimumIdle(), hikari.getConnectionTimeout());
+        }
+
+        new JdbcTemplate(dataSource)
+                .queryForList("SELECT NAME, VALUE FROM INFORMATION_SCHEMA.SETTINGS WHERE NAME IN (?, ?, ?, ?)",
+                        REPORTED_H2_SETTINGS.toArray())
+                .forEach(setting -> log.info("H2 setting {}={}", setting.get("NAME"), setting.get("VALUE")));
+    }
+}
@@ -0,0 +1,47 @@
+package no.javatec.hoaxify.configuration;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Reactive access to the same H2 database the JPA repositories use, derived from the JDBC datasource settings.
+ * The pool is not exposed as a {@link io.r2dbc.spi.ConnectionFactory} bean, since Spring Boot backs off from
+ * creating the JDBC {@code DataSource} when one is present. With any other database the reactive feed is left out
+ * and the application starts with the servlet endpoints only.
+ */
+@Configuration
+@Conditional(OnH2Datasource.class)
+public class R2dbcConfiguration implements DisposableBean {
+
+    private final ConnectionPool connectionPool;
+
+    R2dbcConfiguration(DataSourceProperties dataSourceProperties) {
+        var url = dataSourceProperties.determineUrl();
+        var connectionFactory = new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .url(url.substring(OnH2Datasource.H2_URL_PREFIX.length()))
+                .username(dataSourceProperties.determineUsername())
+                .password(dataSourceProperties.determinePassword())
+                .build());
+        this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .name("hoaxify-r2dbc-pool")
+                .build());
+    }
+
+    @Bean
+    DatabaseClient databaseClient() {
+        return DatabaseClient.create(connectionPool);
+    }
+
+    @Override
+    public void destroy() {
+        connectionPool.dispose();
+    }
+}
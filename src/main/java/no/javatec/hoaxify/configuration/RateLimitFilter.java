@@ -0,0 +1,178 @@
+package no.javatec.hoaxify.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import no.javatec.hoaxify.error.TooManyRequestsException;
+import no.javatec.hoaxify.user.User;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for the hoax and upload write endpoints. Runs inside the security filter chain,
+ * after Basic authentication, so requests are limited per user as well as per client address.
+ * A batch takes one token per hoax from the user, charged by the controller through {@link #acquireBatch} once the
+ * body has been parsed, so nothing is read here before the request is known to be authenticated.
+ * At most {@code maxIpBuckets} client addresses get a bucket of their own; while that many are tracked, new
+ * addresses share a single bucket rather than the memory growing.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String HOAXES_PATH = "/api/1.0/hoaxes";
+    private static final String UPLOAD_PATH = HOAXES_PATH + "/upload";
+    private static final String BATCH_PATH = HOAXES_PATH + "/batch";
+
+    private final AppConfiguration.RateLimit config;
+    private final Map<Long, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+    private final TokenBucket overflowIpBucket;
+    private final AtomicInteger activeUploads = new AtomicInteger();
+    private final Counter userRejected;
+    private final Counter ipRejected;
+    private final Counter uploadsRejected;
+
+    public RateLimitFilter(AppConfiguration appConfiguration, MeterRegistry meterRegistry) {
+        this.config = appConfiguration.getRateLimit();
+        this.overflowIpBucket = newBucket(config.getIp(), System.nanoTime());
+        this.userRejected = rejectedCounter(meterRegistry, "user");
+        this.ipRejected = rejectedCounter(meterRegistry, "ip");
+        this.uploadsRejected = rejectedCounter(meterRegistry, "concurrent-uploads");
+        meterRegistry.gauge("hoaxify.uploads.active", activeUploads);
+        meterRegistry.gaugeMapSize("hoaxify.ratelimit.buckets", Tags.of("key", "user"), userBuckets);
+        meterRegistry.gaugeMapSize("hoaxify.ratelimit.buckets", Tags.of("key", "ip"), ipBuckets);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !config.isEnabled()
+                || !HttpMethod.POST.matches(request.getMethod())
+                || !request.getRequestURI().startsWith(HOAXES_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var now = System.nanoTime();
+
+        var userId = currentUserId();
+        if (userId != null && !request.getRequestURI().equals(BATCH_PATH)) {
+            var wait = userBucket(userId, now).tryAcquire(now);
+            if (wait > 0) {
+                userRejected.increment();
+                reject(response, wait, "Too many requests");
+                return;
+            }
+        }
+
+        var wait = ipBucket(request.getRemoteAddr(), now).tryAcquire(now);
+        if (wait > 0) {
+            ipRejected.increment();
+            reject(response, wait, "Too many requests");
+            return;
+        }
+
+        if (!request.getRequestURI().startsWith(UPLOAD_PATH)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (activeUploads.incrementAndGet() > config.getMaxConcurrentUploads()) {
+            activeUploads.decrementAndGet();
+            uploadsRejected.increment();
+            reject(response, TimeUnit.SECONDS.toNanos(1), "Too many uploads in progress");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            activeUploads.decrementAndGet();
+        }
+    }
+
+    // a full bucket behaves exactly like a new one, so dropping it loses nothing
+    @Scheduled(fixedRate = 60 * 1000)
+    public void evictFullBuckets() {
+        var now = System.nanoTime();
+        userBuckets.values().removeIf(bucket -> bucket.isFull(now));
+        ipBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    /**
+     * Takes one token per hoax of a batch from the user's bucket.
+     *
+     * @throws TooManyRequestsException when the user has not got that many tokens
+     */
+    public void acquireBatch(User user, int hoaxes) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        var now = System.nanoTime();
+        var wait = userBucket(user.getId(), now).tryAcquire(now, Math.max(1, hoaxes));
+        if (wait > 0) {
+            userRejected.increment();
+            throw new TooManyRequestsException(retryAfterSeconds(wait));
+        }
+    }
+
+    private TokenBucket userBucket(long userId, long now) {
+        return userBuckets.computeIfAbsent(userId, id -> newBucket(config.getUser(), now));
+    }
+
+    private TokenBucket ipBucket(String address, long now) {
+        var bucket = ipBuckets.get(address);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (ipBuckets.size() >= config.getMaxIpBuckets()) {
+            ipBuckets.values().removeIf(candidate -> candidate.isFull(now));
+            if (ipBuckets.size() >= config.getMaxIpBuckets()) {
+                return overflowIpBucket;
+            }
+        }
+        return ipBuckets.computeIfAbsent(address, ip -> newBucket(config.getIp(), now));
+    }
+
+    private static Long currentUserId() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User) {
+            return ((User) authentication.getPrincipal()).getId();
+        }
+        return null;
+    }
+
+    private static TokenBucket newBucket(AppConfiguration.Bucket bucket, long now) {
+        return new TokenBucket(bucket.getCapacity(), bucket.getRefillPerSecond(), now);
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos, String message) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds(waitNanos)));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), message);
+    }
+
+    private static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String limit) {
+        return Counter.builder("hoaxify.ratelimit.rejected")
+                .description("Requests shed by the rate limiter")
+                .tag("limit", limit)
+                .register(meterRegistry);
+    }
+}
@@ -1,6 +1,10 @@
 package no.javatec.hoaxify.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -10,36 +14,75 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+
+import java.util.Map;
 
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true)
+@RequiredArgsConstructor
+@Slf4j
 public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
+    private final RateLimitFilter rateLimitFilter;
+    private final AppConfiguration appConfiguration;
+    private final MeterRegistry meterRegistry;
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http.headers().disable();
         http.csrf().disable();
         http.httpBasic().authenticationEntryPoint(new BasicAuthEntryPoint());
         http.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+        http.addFilterAfter(rateLimitFilter, BasicAuthenticationFilter.class);
 
         http
                 .authorizeRequests()
                 .antMatchers(HttpMethod.POST, "/api/1.0/login").authenticated()
                 .antMatchers(HttpMethod.POST, "/api/1.0/hoaxes/**").authenticated()
+                .antMatchers(HttpMethod.GET, "/api/1.0/hoaxes/upload/**").authenticated()
                 .antMatchers(HttpMethod.DELETE, "/api/1.0/hoaxes/**").authenticated()
                 .antMatchers(HttpMethod.PUT, "/api/1.0/users/{id:[0-9]+}").authenticated()
+                .antMatchers("/api/1.0/users/*/follow").authenticated()
+                .antMatchers(HttpMethod.GET, "/api/1.0/timeline/**").authenticated()
                 .and()
                 .authorizeRequests().anyRequest().permitAll();
     }
 
     @Autowired
-    public void configureGlobal(AuthenticationManagerBuilder builder, AuthUserService authUserService) throws Exception {
-        builder.userDetailsService(authUserService).passwordEncoder(passwordEncoder());
+    public void configureGlobal(AuthenticationManagerBuilder builder, AuthUserService authUserService, LoginThrottle loginThrottle) {
+        var provider = new ThrottlingAuthenticationProvider(loginThrottle);
+        provider.setUserDetailsService(authUserService);
+        provider.setPasswordEncoder(passwordEncoder());
+        provider.setUserDetailsPasswordService(authUserService);
+        builder.authenticationProvider(provider);
+    }
+
+    // only runs inside the security chain, where the logged in user is known
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration() {
+        var registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.setEnabled(false);
+        return registration;
     }
 
+    /**
+     * Hashes are stored with an {bcrypt} prefix. Hashes from before the prefix, or with a lower cost than the
+     * current one, still match and are rehashed on the next successful login.
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        var config = appConfiguration.getPasswordHashing();
+        var strength = config.getBcryptStrength();
+        if (strength == null) {
+            strength = BCryptCalibration.strengthFor(config.getTargetHashTime());
+            log.info("BCrypt strength {} calibrated for {} ms per hash", strength, config.getTargetHashTime().toMillis());
+        }
+        var bcrypt = new BCryptPasswordEncoder(strength);
+        var encoder = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return new OffloadingPasswordEncoder(encoder, config.getThreads(), config.getQueueCapacity(), meterRegistry);
     }
 }
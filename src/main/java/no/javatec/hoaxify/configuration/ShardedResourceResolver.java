@@ -0,0 +1,37 @@
+package no.javatec.hoaxify.configuration;
+
+import no.javatec.hoaxify.file.storage.DirectorySharding;
+import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+/**
+ * Maps {@code <folder>/<name>} to the sharded location of the file, falling back to the flat location for
+ * files that have not been migrated yet.
+ */
+public class ShardedResourceResolver extends AbstractResourceResolver {
+
+    @Override
+    protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath,
+                                               List<? extends Resource> locations, ResourceResolverChain chain) {
+        var separator = requestPath.lastIndexOf('/');
+        if (separator > 0) {
+            var shardedPath = requestPath.substring(0, separator + 1)
+                    + DirectorySharding.shardedPath(requestPath.substring(separator + 1));
+            var resource = chain.resolveResource(request, shardedPath, locations);
+            if (resource != null) {
+                return resource;
+            }
+        }
+        return chain.resolveResource(request, requestPath, locations);
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations,
+                                            ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourceUrlPath, locations);
+    }
+}
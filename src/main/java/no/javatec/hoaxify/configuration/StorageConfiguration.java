@@ -0,0 +1,63 @@
+package no.javatec.hoaxify.configuration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.javatec.hoaxify.file.storage.BlobStore;
+import no.javatec.hoaxify.file.storage.LocalBlobStore;
+import no.javatec.hoaxify.file.storage.S3BlobStore;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class StorageConfiguration {
+
+    private final AppConfiguration appConfiguration;
+
+    @Bean
+    BlobStore blobStore() {
+        if (appConfiguration.getStorage().getType() == AppConfiguration.Storage.Type.S3) {
+            var s3 = appConfiguration.getStorage().getS3();
+            return new S3BlobStore(
+                    HttpClient.newHttpClient(),
+                    URI.create(s3.getEndpoint()),
+                    s3.getBucket(),
+                    s3.getRegion(),
+                    s3.getAccessKey(),
+                    s3.getSecretKey());
+        }
+        return new LocalBlobStore(Path.of(appConfiguration.getUploadPath()));
+    }
+
+    @Bean
+    CommandLineRunner migrateFlatUploadFolders(BlobStore blobStore) {
+        return args -> {
+            if (!(blobStore instanceof LocalBlobStore)) {
+                return;
+            }
+            var migration = new Thread(() -> migrate((LocalBlobStore) blobStore), "upload-folder-migration");
+            migration.setDaemon(true);
+            migration.start();
+        };
+    }
+
+    private void migrate(LocalBlobStore blobStore) {
+        for (var folder : new String[]{appConfiguration.getProfileImagesFolder(), appConfiguration.getAttachmentsFolder()}) {
+            try {
+                var moved = blobStore.migrateFlatFolder(folder);
+                if (moved > 0) {
+                    log.info("Moved {} files in '{}' to the sharded layout", moved, folder);
+                }
+            } catch (IOException e) {
+                log.error("Migration of upload folder '{}' failed", folder, e);
+            }
+        }
+    }
+}
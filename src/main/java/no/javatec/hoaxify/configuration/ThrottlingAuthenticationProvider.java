@@ -0,0 +1,47 @@
+package no.javatec.hoaxify.configuration;
+
+import no.javatec.hoaxify.error.ServiceUnavailableException;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+
+/**
+ * Rejects blocked username and address pairs, and blocked addresses, before the user is looked up and the password is hashed,
+ * so a guessing client costs a map lookup instead of a BCrypt round.
+ */
+public class ThrottlingAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private final LoginThrottle loginThrottle;
+
+    public ThrottlingAuthenticationProvider(LoginThrottle loginThrottle) {
+        this.loginThrottle = loginThrottle;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        var username = authentication.getName();
+        var address = authentication.getDetails() instanceof WebAuthenticationDetails
+                ? ((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress()
+                : null;
+
+        var blocked = loginThrottle.blockedFor(username, address, System.nanoTime());
+        if (blocked > 0) {
+            throw new LoginThrottledException(Math.max(1, (blocked + 999_999_999L) / 1_000_000_000L));
+        }
+
+        try {
+            var result = super.authenticate(authentication);
+            loginThrottle.succeeded(username, address);
+            return result;
+        } catch (BadCredentialsException e) {
+            loginThrottle.failed(username, address, System.nanoTime());
+            throw e;
+        } catch (ServiceUnavailableException e) {
+            // password hashing is saturated; surfaced by the entry point as 503
+            throw new AuthenticationServiceException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package no.javatec.hoaxify.configuration;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, kept as the single instant at which the bucket is full again
+ * (the generic cell rate algorithm), so taking a token is one compare-and-set.
+ */
+class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(int capacity, double refillPerSecond, long nowNanos) {
+        this.nanosPerToken = (long) (1_000_000_000L / refillPerSecond);
+        this.burstNanos = nanosPerToken * capacity;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @return 0 when a token was taken, otherwise the nanoseconds until one is available
+     */
+    long tryAcquire(long nowNanos) {
+        return tryAcquire(nowNanos, 1);
+    }
+
+    /**
+     * Takes {@code tokens} at once. More tokens than the capacity are only taken from a full bucket, which is then
+     * left in debt until they have been refilled.
+     *
+     * @return 0 when the tokens were taken, otherwise the nanoseconds until they are available
+     */
+    long tryAcquire(long nowNanos, int tokens) {
+        var cost = nanosPerToken * tokens;
+        while (true) {
+            var current = fullAt.get();
+            var next = Math.max(current, nowNanos) + cost;
+            var wait = next - nowNanos - burstNanos - Math.max(0, cost - burstNanos);
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    boolean isFull(long nowNanos) {
+        return fullAt.get() - nowNanos <= 0;
+    }
+}
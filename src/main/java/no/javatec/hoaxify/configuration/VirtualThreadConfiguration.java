@@ -0,0 +1,42 @@
+package no.javatec.hoaxify.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.task.TaskExecutorCustomizer;
+import org.springframework.boot.task.TaskSchedulerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs Tomcat request handling, scheduled jobs and async tasks on virtual threads when
+ * {@code hoaxify.virtual-threads} is enabled and the runtime supports them (Java 21+). The slow upload load test
+ * ({@code SlowUploadLoadBenchmark}) has not shown a measurable gain so far, see its results before enabling it.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "hoaxify", name = "virtual-threads", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    @Bean
+    TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        var executor = VirtualThreads.perTaskExecutor("http-vt-");
+        if (executor.isEmpty()) {
+            log.warn("hoaxify.virtual-threads is enabled, but virtual threads are not available on Java {}",
+                    System.getProperty("java.version"));
+        }
+        return protocolHandler -> executor.ifPresent(protocolHandler::setExecutor);
+    }
+
+    @Bean
+    TaskSchedulerCustomizer virtualThreadTaskSchedulerCustomizer() {
+        return taskScheduler -> VirtualThreads.threadFactory("scheduling-vt-")
+                .ifPresent(taskScheduler::setThreadFactory);
+    }
+
+    @Bean
+    TaskExecutorCustomizer virtualThreadTaskExecutorCustomizer() {
+        return taskExecutor -> VirtualThreads.threadFactory("task-vt-")
+                .ifPresent(taskExecutor::setThreadFactory);
+    }
+}
@@ -0,0 +1,30 @@
+package no.javatec.hoaxify.configuration;
+
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Looks up the virtual thread API reflectively, so the application still builds for and runs on Java 11.
+ * On runtimes without virtual threads every method returns an empty result.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static Optional<ThreadFactory> threadFactory(String namePrefix) {
+        try {
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            var builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return Optional.of((ThreadFactory) builderType.getMethod("factory").invoke(builder));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+
+    public static Optional<Executor> perTaskExecutor(String namePrefix) {
+        return threadFactory(namePrefix).map(factory -> task -> factory.newThread(task).start());
+    }
+}
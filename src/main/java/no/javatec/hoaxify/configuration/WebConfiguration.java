@@ -1,14 +1,20 @@
 package no.javatec.hoaxify.configuration;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.CacheControl;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.io.File;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
@@ -16,24 +22,53 @@ import java.util.concurrent.TimeUnit;
 public class WebConfiguration implements WebMvcConfigurer {
 
     private final AppConfiguration appConfiguration;
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    // appended rather than registered as a bean, so JSON stays the default for Accept: */*
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilder.factory(new CBORFactory()).build()));
+    }
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        if (!isLocalStorage()) {
+            return;
+        }
         registry
                 .addResourceHandler("/images/**")
                 .addResourceLocations(String.format("file:%s/", appConfiguration.getUploadPath()))
-                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS));
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS))
+                .resourceChain(false)
+                .addResolver(new ShardedResourceResolver());
+    }
+
+    @Override
+    public void addViewControllers(ViewControllerRegistry registry) {
+        if (isLocalStorage()) {
+            return;
+        }
+        var publicUrl = appConfiguration.getStorage().getS3().getPublicUrl();
+        registry.addRedirectViewController("/images/{folder}/{name}", publicUrl + "/{folder}/{name}");
     }
 
     @Bean
     CommandLineRunner createUploadFolder(){
         return args -> {
+            if (!isLocalStorage()) {
+                return;
+            }
             createNonExistingFolder(appConfiguration.getUploadPath());
             createNonExistingFolder(appConfiguration.getFullProfileImagesPath());
             createNonExistingFolder(appConfiguration.getFullAttachmentsPath());
         };
     }
 
+    private boolean isLocalStorage() {
+        return appConfiguration.getStorage().getType() == AppConfiguration.Storage.Type.LOCAL;
+    }
+
     private void createNonExistingFolder(String path) {
         File uploadFolder = new File(path);
         var folderExists = uploadFolder.exists() && uploadFolder.isDirectory();
@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.boot.web.error.ErrorAttributeOptions;
 import org.springframework.boot.web.servlet.error.ErrorAttributes;
 import org.springframework.boot.web.servlet.error.ErrorController;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.WebRequest;
@@ -15,13 +17,17 @@ public class ErrorHandler implements ErrorController {
     private static final String ERROR_PATH = "/error";
     private final ErrorAttributes errorAttributes;
 
+    // always JSON, so errors from the NDJSON streaming endpoints are not turned into 406 Not Acceptable
     @RequestMapping(ERROR_PATH)
-    ApiError handleError(WebRequest webRequest) {
+    ResponseEntity<ApiError> handleError(WebRequest webRequest) {
         var attrs = errorAttributes.getErrorAttributes(webRequest, ErrorAttributeOptions.of(ErrorAttributeOptions.Include.MESSAGE));
-        return new ApiError(
-                (Integer) attrs.get("status"),
-                (String) attrs.get("message"),
-                (String) attrs.get("path"));
+        var status = (Integer) attrs.get("status");
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new ApiError(
+                        status,
+                        (String) attrs.get("message"),
+                        (String) attrs.get("path")));
     }
 
     public String getErrorPath() {
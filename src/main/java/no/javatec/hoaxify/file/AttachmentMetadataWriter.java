@@ -0,0 +1,150 @@
+package no.javatec.hoaxify.file;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import no.javatec.hoaxify.configuration.AppConfiguration;
+import no.javatec.hoaxify.error.ServiceUnavailableException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts the metadata of concurrent uploads together (group commit). A single thread takes what is queued, waits
+ * up to {@code metadataBatchDelay} for more uploads to join, reserves the ids with one sequence query and inserts
+ * the batch as one JDBC batch in one transaction. Each upload waits on its own future, completed after the commit,
+ * or failed once {@code metadataInsertTimeout} has passed.
+ */
+@Component
+public class AttachmentMetadataWriter implements DisposableBean {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long timeoutNanos;
+    private final DistributionSummary batchSizes;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer = new Thread(this::write, "attachment-metadata-writer");
+    private volatile boolean running = true;
+
+    AttachmentMetadataWriter(AppConfiguration appConfiguration, JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        var uploadProcessing = appConfiguration.getUploadProcessing();
+        this.maxBatchSize = uploadProcessing.getMetadataBatchSize();
+        this.maxDelayNanos = uploadProcessing.getMetadataBatchDelay().toNanos();
+        this.timeoutNanos = uploadProcessing.getMetadataInsertTimeout().toNanos();
+        this.batchSizes = DistributionSummary.builder("hoaxify.attachments.metadata.batch")
+                .description("Attachments inserted per batch")
+                .register(meterRegistry);
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return the attachment with its id set, once inserted; failed with a {@link ServiceUnavailableException} right
+     * away when the writer has stopped, or with a {@link java.util.concurrent.TimeoutException} when it is not done in
+     * time
+     */
+    public CompletableFuture<FileAttachment> insert(FileAttachment attachment) {
+        if (!running || !writer.isAlive()) {
+            return CompletableFuture.failedFuture(
+                    new ServiceUnavailableException("Uploads are not accepted right now, try again later"));
+        }
+        var pending = new Pending(attachment);
+        queue.add(pending);
+        return pending.future.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void write() {
+        var batch = new ArrayList<Pending>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void collect(List<Pending> batch) throws InterruptedException {
+        var deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            var remaining = deadline - System.nanoTime();
+            if (batch.size() == maxBatchSize || remaining <= 0) {
+                return;
+            }
+            var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    // the batch succeeds or fails as a whole; a failed upload can simply be retried by the client
+    private void flush(List<Pending> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                var ids = jdbcTemplate.queryForList(
+                        "select next value for hibernate_sequence from system_range(1, ?)", Long.class, batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).attachment.setId(ids.get(i));
+                }
+                jdbcTemplate.batchUpdate("insert into file_attachment (id, date, file_type, name, status, user_id) "
+                                + "values (?, ?, ?, ?, ?, ?)",
+                        batch.stream()
+                                .map(pending -> pending.attachment)
+                                .map(attachment -> new Object[]{
+                                        attachment.getId(),
+                                        new Timestamp(attachment.getDate().getTime()),
+                                        attachment.getFileType(),
+                                        attachment.getName(),
+                                        attachment.getStatus().name(),
+                                        attachment.getOwnerId()})
+                                .collect(Collectors.toList()));
+            });
+            batchSizes.record(batch.size());
+            batch.forEach(pending -> pending.future.complete(pending.attachment));
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private static class Pending {
+
+        private final FileAttachment attachment;
+        private final CompletableFuture<FileAttachment> future = new CompletableFuture<>();
+
+        private Pending(FileAttachment attachment) {
+            this.attachment = attachment;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package no.javatec.hoaxify.file;
+
+import lombok.extern.slf4j.Slf4j;
+import no.javatec.hoaxify.configuration.AppConfiguration;
+import no.javatec.hoaxify.file.storage.BlobStore;
+import no.javatec.hoaxify.hoax.HoaxJsonCache;
+import no.javatec.hoaxify.shared.ContentVersions;
+import org.apache.tika.Tika;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Completes spooled uploads on a bounded pool: detects the file type, writes the blob and marks the
+ * attachment {@link FileAttachment.Status#READY}, or {@link FileAttachment.Status#FAILED} if that is not possible.
+ * If the attachment has been posted with a hoax meanwhile, the feed and the author's versions are bumped and the
+ * hoax's cached JSON dropped, so pollers see the new status.
+ * The pool is kept private, as an {@link java.util.concurrent.Executor} bean would replace Spring Boot's
+ * application task executor.
+ */
+@Slf4j
+@Component
+public class AttachmentProcessor implements DisposableBean {
+
+    private final AppConfiguration appConfiguration;
+    private final FileAttachmentRepository fileAttachmentRepository;
+    private final BlobStore blobStore;
+    private final ContentVersions contentVersions;
+    private final HoaxJsonCache hoaxJsonCache;
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    private final Tika tika = new Tika();
+
+    AttachmentProcessor(AppConfiguration appConfiguration,
+                        FileAttachmentRepository fileAttachmentRepository,
+                        BlobStore blobStore,
+                        ContentVersions contentVersions,
+                        HoaxJsonCache hoaxJsonCache) {
+        this.appConfiguration = appConfiguration;
+        this.fileAttachmentRepository = fileAttachmentRepository;
+        this.blobStore = blobStore;
+        this.contentVersions = contentVersions;
+        this.hoaxJsonCache = hoaxJsonCache;
+
+        var uploadProcessing = appConfiguration.getUploadProcessing();
+        executor.setCorePoolSize(uploadProcessing.getThreads());
+        executor.setMaxPoolSize(uploadProcessing.getThreads());
+        executor.setQueueCapacity(uploadProcessing.getQueueCapacity());
+        executor.setThreadNamePrefix("attachment-processing-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+    }
+
+    /**
+     * @throws TaskRejectedException if the queue is full; the spooled file is left to the caller
+     */
+    public void submit(FileAttachment attachment, Path spooledFile) {
+        executor.execute(() -> process(attachment, spooledFile));
+    }
+
+    private void process(FileAttachment attachment, Path spooledFile) {
+        String fileType = null;
+        var status = FileAttachment.Status.FAILED;
+        try {
+            var fileAsBytes = Files.readAllBytes(spooledFile);
+            fileType = tika.detect(fileAsBytes);
+            blobStore.write(appConfiguration.getAttachmentsFolder(), attachment.getName(), fileAsBytes).join();
+            status = FileAttachment.Status.READY;
+        } catch (IOException | RuntimeException e) {
+            log.error("Processing of attachment {} failed", attachment.getId(), e);
+        } finally {
+            deleteSpooledFile(spooledFile);
+        }
+        fileAttachmentRepository.updateProcessingResult(attachment.getId(), fileType, status);
+        // committed by now; a hoax posted after this lookup bumps the versions itself
+        fileAttachmentRepository.findPosted(attachment.getId()).ifPresent(posted -> {
+            hoaxJsonCache.evict(posted.getHoaxId());
+            contentVersions.hoaxChanged(posted.getUsername(), System.currentTimeMillis());
+        });
+    }
+
+    private static void deleteSpooledFile(Path spooledFile) {
+        try {
+            Files.deleteIfExists(spooledFile);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}", spooledFile, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,38 @@
+package no.javatec.hoaxify.file;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Attachments promised to a hoax that is acknowledged but not in the database yet. No other hoax can take them,
+ * and the storage cleanup leaves them alone until they are released once the hoax is saved.
+ */
+@Component
+public class AttachmentReservations {
+
+    private final Set<Long> reserved = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Reserves all the attachments or none of them.
+     *
+     * @return false when one of them is reserved already
+     */
+    public synchronized boolean reserve(Collection<Long> attachmentIds) {
+        if (attachmentIds.stream().anyMatch(reserved::contains)) {
+            return false;
+        }
+        reserved.addAll(attachmentIds);
+        return true;
+    }
+
+    public void release(Collection<Long> attachmentIds) {
+        reserved.removeAll(attachmentIds);
+    }
+
+    public boolean isReserved(long attachmentId) {
+        return reserved.contains(attachmentId);
+    }
+}
@@ -1,5 +1,6 @@
 package no.javatec.hoaxify.file;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import no.javatec.hoaxify.hoax.Hoax;
 
@@ -10,6 +11,8 @@ import java.util.Date;
 @Entity
 public class FileAttachment {
 
+    public enum Status {PROCESSING, READY, FAILED}
+
     @Id
     @GeneratedValue
     private long id;
@@ -21,6 +24,14 @@ public class FileAttachment {
 
     private String fileType;
 
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.READY;
+
     @OneToOne
     private Hoax hoax;
+
+    // the uploader, the only one who may look the upload up by id
+    @JsonIgnore
+    @Column(name = "user_id")
+    private Long ownerId;
 }
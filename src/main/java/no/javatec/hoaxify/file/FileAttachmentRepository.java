@@ -1,10 +1,37 @@
 package no.javatec.hoaxify.file;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 public interface FileAttachmentRepository extends JpaRepository<FileAttachment, Long> {
     List<FileAttachment> findByDateBeforeAndHoaxIsNull(Date date);
+
+    // leaves the hoax relation alone, it may have been set while the upload was processed
+    @Transactional
+    @Modifying
+    @Query("update FileAttachment f set f.fileType = :fileType, f.status = :status where f.id = :id")
+    int updateProcessingResult(long id, String fileType, FileAttachment.Status status);
+
+    // the hoax an attachment has been posted with, if any, and its author
+    @Query("select h.id as hoaxId, u.username as username from FileAttachment f join f.hoax h join h.user u " +
+            "where f.id = :id")
+    Optional<PostedAttachment> findPosted(long id);
+
+    // deletes the attachment of a hoax owned by the given user and hands back the blob name in the same statement
+    @Query(value = "select name from old table (" +
+            "delete from file_attachment where hoax_id = " +
+            "(select id from hoax where id = :hoaxId and user_id = :userId))", nativeQuery = true)
+    List<String> deleteOfOwnedHoax(long hoaxId, long userId);
+
+    interface PostedAttachment {
+        long getHoaxId();
+
+        String getUsername();
+    }
 }
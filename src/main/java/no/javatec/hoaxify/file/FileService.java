@@ -1,23 +1,32 @@
 package no.javatec.hoaxify.file;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import no.javatec.hoaxify.configuration.AppConfiguration;
-import org.apache.commons.io.FileUtils;
+import no.javatec.hoaxify.error.NotFoundException;
+import no.javatec.hoaxify.error.ServiceUnavailableException;
+import no.javatec.hoaxify.file.storage.BlobStore;
+import no.javatec.hoaxify.user.User;
 import org.apache.tika.Tika;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.Base64;
 import java.util.Date;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
+@Slf4j
 @RequiredArgsConstructor
 @Service
 @EnableScheduling
@@ -29,6 +38,10 @@ public class FileService {
 
     private final AppConfiguration appConfiguration;
     private final FileAttachmentRepository fileAttachmentRepository;
+    private final BlobStore blobStore;
+    private final AttachmentProcessor attachmentProcessor;
+    private final AttachmentMetadataWriter attachmentMetadataWriter;
+    private final AttachmentReservations attachmentReservations;
 
     private final Tika tika = new Tika();
 
@@ -37,8 +50,7 @@ public class FileService {
         String imageName = getRandomName();
         var decodedBytes = Base64.getDecoder().decode(base64Image);
 
-        var target = new File(appConfiguration.getFullProfileImagesPath() + "/" + imageName);
-        FileUtils.writeByteArrayToFile(target, decodedBytes);
+        await(blobStore.write(appConfiguration.getProfileImagesFolder(), imageName, decodedBytes));
 
         return imageName;
     }
@@ -48,30 +60,85 @@ public class FileService {
     }
 
     public void deleteProfileImage(String imageName) {
-        try {
-            Files.deleteIfExists(Path.of(appConfiguration.getFullProfileImagesPath() + "/" + imageName));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        delete(appConfiguration.getProfileImagesFolder(), imageName);
     }
 
-    public FileAttachment saveAttachment(MultipartFile file) {
+    public FileAttachment saveAttachment(MultipartFile file, User owner) {
         FileAttachment fileAttachment = new FileAttachment();
+        fileAttachment.setOwnerId(owner.getId());
         fileAttachment.setDate(new Date());
 
         String randomName = getRandomName();
         fileAttachment.setName(randomName);
 
-        var target = new File(appConfiguration.getFullAttachmentsPath() + "/" + randomName);
+        CompletableFuture<Void> write;
         try {
             var fileAsBytes = file.getBytes();
             fileAttachment.setFileType(detectType(fileAsBytes));
-            FileUtils.writeByteArrayToFile(target, fileAsBytes);
+            write = blobStore.write(appConfiguration.getAttachmentsFolder(), randomName, fileAsBytes);
+        } catch (IOException e) {
+            log.error("Reading upload {} failed", randomName, e);
+            throw new UncheckedIOException(e);
+        }
+
+        // the blob is written while the metadata is inserted
+        FileAttachment saved;
+        try {
+            saved = insert(fileAttachment);
+        } catch (RuntimeException e) {
+            // once written, as a delete that overtakes the write would leave the blob behind
+            write.whenComplete((ignored, error) -> deleteAttachmentImage(randomName));
+            throw e;
+        }
+        try {
+            await(write);
         } catch (IOException e) {
-            e.printStackTrace();
+            log.error("Writing attachment {} to {} failed", randomName, appConfiguration.getAttachmentsFolder(), e);
+            fileAttachmentRepository.deleteById(saved.getId());
+            throw new UncheckedIOException(e);
+        }
+        return saved;
+    }
+
+    /**
+     * Spools the upload to a temporary file and hands it to the {@link AttachmentProcessor}. The returned attachment
+     * is {@link FileAttachment.Status#PROCESSING} and has no file type until processing completes.
+     */
+    public FileAttachment spoolAttachment(MultipartFile file, User owner) throws IOException {
+        var spooledFile = Files.createTempFile("hoaxify-upload-", ".tmp");
+        FileAttachment saved = null;
+        // until the processor owns the spooled file, every way out of here removes it
+        var submitted = false;
+        try {
+            file.transferTo(spooledFile);
+
+            FileAttachment fileAttachment = new FileAttachment();
+            fileAttachment.setDate(new Date());
+            fileAttachment.setName(getRandomName());
+            fileAttachment.setStatus(FileAttachment.Status.PROCESSING);
+            fileAttachment.setOwnerId(owner.getId());
+            saved = insert(fileAttachment);
+
+            attachmentProcessor.submit(saved, spooledFile);
+            submitted = true;
+            return saved;
+        } catch (TaskRejectedException e) {
+            throw new ServiceUnavailableException("Too many uploads are being processed, try again later");
+        } finally {
+            if (!submitted) {
+                Files.deleteIfExists(spooledFile);
+                if (saved != null) {
+                    fileAttachmentRepository.deleteById(saved.getId());
+                }
+            }
         }
+    }
 
-        return fileAttachmentRepository.save(fileAttachment);
+    // someone else's upload is reported as missing, so ids cannot be probed
+    public FileAttachment getAttachment(long id, User user) {
+        return fileAttachmentRepository.findById(id)
+                .filter(attachment -> Objects.equals(attachment.getOwnerId(), user.getId()))
+                .orElseThrow(() -> new NotFoundException("Attachment " + id + " not found"));
     }
 
     @Scheduled(fixedRate = 60 * 60 * 1000)
@@ -80,16 +147,51 @@ public class FileService {
         var oldFiles = fileAttachmentRepository.findByDateBeforeAndHoaxIsNull(oneHourAgo);
 
         for (var attachment : oldFiles) {
+            // promised to a hoax that is still on its way to the database
+            if (attachmentReservations.isReserved(attachment.getId())) {
+                continue;
+            }
             deleteAttachmentImage(attachment.getName());
             fileAttachmentRepository.deleteById(attachment.getId());
         }
     }
 
     public void deleteAttachmentImage(String image) {
+        delete(appConfiguration.getAttachmentsFolder(), image);
+    }
+
+    private void delete(String folder, String name) {
+        if (name == null) {
+            return;
+        }
+        blobStore.delete(folder, name).exceptionally(e -> {
+            log.warn("Deleting {} from {} failed", name, folder, e);
+            return null;
+        });
+    }
+
+    private FileAttachment insert(FileAttachment fileAttachment) {
         try {
-            Files.deleteIfExists(Path.of(appConfiguration.getFullAttachmentsPath() + "/" + image));
-        } catch (IOException e) {
-            e.printStackTrace();
+            return attachmentMetadataWriter.insert(fileAttachment).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new ServiceUnavailableException("Upload could not be saved in time, try again later");
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static void await(CompletableFuture<Void> future) throws IOException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
         }
     }
 
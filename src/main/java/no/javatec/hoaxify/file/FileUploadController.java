@@ -1,11 +1,14 @@
 package no.javatec.hoaxify.file;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import no.javatec.hoaxify.user.User;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/1.0")
 @RequiredArgsConstructor
@@ -14,7 +17,18 @@ public class FileUploadController {
     private final FileService fileService;
 
     @PostMapping("/hoaxes/upload")
-    FileAttachment uploadForHoax(MultipartFile file) {
-        return fileService.saveAttachment(file);
+    FileAttachment uploadForHoax(MultipartFile file, @AuthenticationPrincipal User user) {
+        return fileService.saveAttachment(file, user);
+    }
+
+    @PostMapping("/hoaxes/upload/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    FileAttachment uploadForHoaxAsync(MultipartFile file, @AuthenticationPrincipal User user) throws IOException {
+        return fileService.spoolAttachment(file, user);
+    }
+
+    @GetMapping("/hoaxes/upload/{id:[0-9]+}")
+    FileAttachment getUpload(@PathVariable long id, @AuthenticationPrincipal User user) {
+        return fileService.getAttachment(id, user);
     }
 }
@@ -0,0 +1,115 @@
+package no.javatec.hoaxify.file.storage;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal AWS Signature Version 4 signer for path-style S3 requests without query parameters.
+ */
+class AwsV4Signer {
+
+    static final String CONTENT_SHA256 = "x-amz-content-sha256";
+    static final String DATE = "x-amz-date";
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter DATE_ONLY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final String region;
+    private final String accessKey;
+    private final String secretKey;
+
+    AwsV4Signer(String region, String accessKey, String secretKey) {
+        this.region = region;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+    }
+
+    /**
+     * Returns the headers to add to the request, including the Authorization header.
+     */
+    Map<String, String> sign(String method, URI uri, byte[] payload, ZonedDateTime now) {
+        var timestamp = now.withZoneSameInstant(ZoneOffset.UTC);
+        var amzDate = DATE_TIME.format(timestamp);
+        var scope = DATE_ONLY.format(timestamp) + "/" + region + "/" + SERVICE + "/aws4_request";
+        var payloadHash = hex(sha256(payload));
+
+        var headers = new LinkedHashMap<String, String>();
+        headers.put("host", host(uri));
+        headers.put(CONTENT_SHA256, payloadHash);
+        headers.put(DATE, amzDate);
+
+        var canonicalHeaders = new StringBuilder();
+        headers.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value).append('\n'));
+        var signedHeaders = String.join(";", headers.keySet());
+
+        var canonicalRequest = String.join("\n",
+                method,
+                uri.getRawPath(),
+                "",
+                canonicalHeaders.toString(),
+                signedHeaders,
+                payloadHash);
+
+        var stringToSign = String.join("\n",
+                ALGORITHM,
+                amzDate,
+                scope,
+                hex(sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8))));
+
+        var signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), DATE_ONLY.format(timestamp));
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, SERVICE);
+        signingKey = hmac(signingKey, "aws4_request");
+        var signature = hex(hmac(signingKey, stringToSign));
+
+        headers.remove("host");
+        headers.put("Authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+        return headers;
+    }
+
+    static String sha256Hex(byte[] content) {
+        return hex(sha256(content));
+    }
+
+    private static String host(URI uri) {
+        return uri.getPort() == -1 ? uri.getHost() : uri.getHost() + ":" + uri.getPort();
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            var mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        var hex = new StringBuilder(bytes.length * 2);
+        for (var b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
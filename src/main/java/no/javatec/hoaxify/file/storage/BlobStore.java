@@ -0,0 +1,14 @@
+package no.javatec.hoaxify.file.storage;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage backend for uploaded files. Blobs are addressed by a folder, such as the profile
+ * images or attachments folder, and a file name that is unique within that folder.
+ */
+public interface BlobStore {
+
+    CompletableFuture<Void> write(String folder, String name, byte[] content);
+
+    CompletableFuture<Void> delete(String folder, String name);
+}
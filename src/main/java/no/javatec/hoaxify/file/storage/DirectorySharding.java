@@ -0,0 +1,22 @@
+package no.javatec.hoaxify.file.storage;
+
+/**
+ * Two-level directory layout for uploaded files. A file is placed below two folders named after the first
+ * two pairs of characters of its name, so {@code 3f9a0c...} is stored as {@code 3f/9a/3f9a0c...}. Generated
+ * names are random hex strings, which spreads the files evenly over 65536 leaf folders.
+ */
+public final class DirectorySharding {
+
+    private static final int SHARD_LENGTH = 2;
+    private static final int LEVELS = 2;
+
+    private DirectorySharding() {
+    }
+
+    public static String shardedPath(String name) {
+        if (name.length() < SHARD_LENGTH * LEVELS) {
+            return name;
+        }
+        return name.substring(0, SHARD_LENGTH) + "/" + name.substring(SHARD_LENGTH, SHARD_LENGTH * LEVELS) + "/" + name;
+    }
+}
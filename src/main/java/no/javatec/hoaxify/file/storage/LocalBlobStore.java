@@ -0,0 +1,123 @@
+package no.javatec.hoaxify.file.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Stores blobs below a root folder on the local file system, writing through asynchronous file channels.
+ * Files are laid out with {@link DirectorySharding}. Files still in the old flat layout are found and
+ * deleted as well, until {@link #migrateFlatFolder(String)} has moved them.
+ */
+public class LocalBlobStore implements BlobStore {
+
+    private final Path root;
+
+    public LocalBlobStore(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public CompletableFuture<Void> write(String folder, String name, byte[] content) {
+        var result = new CompletableFuture<Void>();
+        try {
+            var target = resolve(folder, name);
+            Files.createDirectories(target.getParent());
+            var channel = AsynchronousFileChannel.open(target, CREATE, WRITE, TRUNCATE_EXISTING);
+            var buffer = ByteBuffer.wrap(content);
+            channel.write(buffer, 0, channel, new WriteHandler(buffer, result));
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String folder, String name) {
+        try {
+            // flat path first: a concurrent migration has then either moved the file already, so it is deleted from
+            // the sharded path below, or finds it gone and skips it
+            Files.deleteIfExists(root.resolve(folder).resolve(name));
+            Files.deleteIfExists(resolve(folder, name));
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Moves the files lying directly in the folder into their sharded location and returns how many were moved.
+     * Safe to run while the application is serving requests, since reads and deletes fall back to the flat path.
+     */
+    public long migrateFlatFolder(String folder) throws IOException {
+        var flatFolder = root.resolve(folder);
+        if (!Files.isDirectory(flatFolder)) {
+            return 0;
+        }
+        long moved = 0;
+        try (var files = Files.newDirectoryStream(flatFolder, Files::isRegularFile)) {
+            for (var file : files) {
+                var target = resolve(folder, file.getFileName().toString());
+                if (target.equals(file)) {
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                    moved++;
+                } catch (NoSuchFileException e) {
+                    // deleted since the folder was listed
+                }
+            }
+        }
+        return moved;
+    }
+
+    Path resolve(String folder, String name) {
+        return root.resolve(folder).resolve(DirectorySharding.shardedPath(name));
+    }
+
+    private static class WriteHandler implements CompletionHandler<Integer, AsynchronousFileChannel> {
+
+        private final ByteBuffer buffer;
+        private final CompletableFuture<Void> result;
+
+        WriteHandler(ByteBuffer buffer, CompletableFuture<Void> result) {
+            this.buffer = buffer;
+            this.result = result;
+        }
+
+        @Override
+        public void completed(Integer written, AsynchronousFileChannel channel) {
+            // a write may be partial, continue from the buffer position until everything is written
+            if (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position(), channel, this);
+                return;
+            }
+            close(channel);
+            result.complete(null);
+        }
+
+        @Override
+        public void failed(Throwable exc, AsynchronousFileChannel channel) {
+            close(channel);
+            result.completeExceptionally(exc);
+        }
+
+        private void close(AsynchronousFileChannel channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
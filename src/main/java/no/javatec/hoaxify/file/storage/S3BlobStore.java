@@ -0,0 +1,75 @@
+package no.javatec.hoaxify.file.storage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stores blobs in an S3 compatible object store using path-style addressing, {@code <endpoint>/<bucket>/<folder>/<name>}.
+ */
+public class S3BlobStore implements BlobStore {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final HttpClient httpClient;
+    private final URI endpoint;
+    private final String bucket;
+    private final AwsV4Signer signer;
+
+    public S3BlobStore(HttpClient httpClient, URI endpoint, String bucket, String region, String accessKey, String secretKey) {
+        this.httpClient = httpClient;
+        this.endpoint = endpoint;
+        this.bucket = bucket;
+        this.signer = new AwsV4Signer(region, accessKey, secretKey);
+    }
+
+    @Override
+    public CompletableFuture<Void> write(String folder, String name, byte[] content) {
+        var uri = objectUri(folder, name);
+        var request = signed(HttpRequest.newBuilder(uri), "PUT", uri, content)
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(content))
+                .build();
+        return send(request, "PUT");
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String folder, String name) {
+        var uri = objectUri(folder, name);
+        var request = signed(HttpRequest.newBuilder(uri), "DELETE", uri, EMPTY)
+                .DELETE()
+                .build();
+        return send(request, "DELETE");
+    }
+
+    URI objectUri(String folder, String name) {
+        var base = endpoint.toString().replaceAll("/+$", "");
+        return URI.create(base + "/" + encode(bucket) + "/" + encode(folder) + "/" + encode(name));
+    }
+
+    private HttpRequest.Builder signed(HttpRequest.Builder builder, String method, URI uri, byte[] payload) {
+        signer.sign(method, uri, payload, ZonedDateTime.now()).forEach(builder::header);
+        return builder;
+    }
+
+    private CompletableFuture<Void> send(HttpRequest request, String method) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenCompose(response -> {
+                    var status = response.statusCode();
+                    if (status / 100 == 2 || ("DELETE".equals(method) && status == 404)) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return CompletableFuture.failedFuture(
+                            new IOException(method + " " + request.uri() + " failed with status " + status));
+                });
+    }
+
+    private static String encode(String segment) {
+        return URLEncoder.encode(segment, StandardCharsets.UTF_8).replace("+", "%20").replace("%7E", "~");
+    }
+}
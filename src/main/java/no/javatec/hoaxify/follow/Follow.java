@@ -0,0 +1,36 @@
+package no.javatec.hoaxify.follow;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import java.io.Serializable;
+import java.util.Date;
+
+@Data
+@Entity
+@IdClass(Follow.Key.class)
+public class Follow {
+
+    @Id
+    private long followerId;
+
+    @Id
+    private long followeeId;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date created;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private long followerId;
+        private long followeeId;
+    }
+}
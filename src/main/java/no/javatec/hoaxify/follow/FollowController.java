@@ -0,0 +1,27 @@
+package no.javatec.hoaxify.follow;
+
+import lombok.RequiredArgsConstructor;
+import no.javatec.hoaxify.shared.GenericResponse;
+import no.javatec.hoaxify.user.User;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/1.0")
+@RequiredArgsConstructor
+public class FollowController {
+
+    private final FollowService followService;
+
+    @PostMapping("/users/{username}/follow")
+    GenericResponse follow(@PathVariable String username, @AuthenticationPrincipal User user) {
+        followService.follow(user, username);
+        return new GenericResponse("Following " + username);
+    }
+
+    @DeleteMapping("/users/{username}/follow")
+    GenericResponse unfollow(@PathVariable String username, @AuthenticationPrincipal User user) {
+        followService.unfollow(user, username);
+        return new GenericResponse("Not following " + username);
+    }
+}
@@ -0,0 +1,42 @@
+package no.javatec.hoaxify.follow;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface FollowRepository extends JpaRepository<Follow, Follow.Key> {
+
+    @Query("select f.followerId from Follow f where f.followeeId = :userId")
+    List<Long> findFollowerIds(long userId, Pageable pageable);
+
+    @Query(value = "select f.followee_id from follow f join user u on u.id = f.followee_id " +
+            "where f.follower_id = :userId and u.follower_count > :fanOutLimit", nativeQuery = true)
+    List<Long> findFolloweeIdsWithMoreFollowersThan(long userId, int fanOutLimit);
+
+    // the user's own hoaxes and those of followed authors that are fanned out on write, newest first
+    @Query(value = "select h.id from hoax h where h.id < :beforeId and (h.user_id = :userId or h.user_id in (" +
+            "select f.followee_id from follow f join user u on u.id = f.followee_id " +
+            "where f.follower_id = :userId and u.follower_count <= :fanOutLimit)) " +
+            "order by h.id desc limit :limit", nativeQuery = true)
+    List<Long> findTimelineHoaxIds(long userId, int fanOutLimit, long beforeId, int limit);
+
+    @Query(value = "select follower_count from user where id = :userId", nativeQuery = true)
+    int getFollowerCount(long userId);
+
+    @Modifying
+    @Query(value = "update user set follower_count = follower_count + :delta where id = :userId", nativeQuery = true)
+    int addToFollowerCount(long userId, int delta);
+
+    @Modifying
+    @Query(value = "insert into follow (follower_id, followee_id, created) " +
+            "select :followerId, :followeeId, current_timestamp from dual where not exists " +
+            "(select 1 from follow where follower_id = :followerId and followee_id = :followeeId)", nativeQuery = true)
+    int insertIfAbsent(long followerId, long followeeId);
+
+    @Modifying
+    @Query("delete from Follow f where f.followerId = :followerId and f.followeeId = :followeeId")
+    int deleteByFollowerIdAndFolloweeId(long followerId, long followeeId);
+}
@@ -0,0 +1,59 @@
+package no.javatec.hoaxify.follow;
+
+import lombok.RequiredArgsConstructor;
+import no.javatec.hoaxify.error.BadRequestException;
+import no.javatec.hoaxify.hoax.HomeTimeline;
+import no.javatec.hoaxify.user.User;
+import no.javatec.hoaxify.user.UserService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+@RequiredArgsConstructor
+public class FollowService {
+
+    private final FollowRepository followRepository;
+    private final UserService userService;
+    private final HomeTimeline homeTimeline;
+    private final TransactionTemplate transactionTemplate;
+
+    public void follow(User follower, String username) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertFollow(follower, username));
+        } catch (DataIntegrityViolationException e) {
+            // the same follow committed by a concurrent request between the existence check and the insert
+        }
+    }
+
+    private void insertFollow(User follower, String username) {
+        var followee = userService.getByUsername(username);
+        if (followee.getId() == follower.getId()) {
+            throw new BadRequestException("Users cannot follow themselves");
+        }
+        if (followRepository.insertIfAbsent(follower.getId(), followee.getId()) == 0) {
+            return;
+        }
+        followRepository.addToFollowerCount(followee.getId(), 1);
+        var followerCount = followRepository.getFollowerCount(followee.getId());
+        if (homeTimeline.isFannedOut(followerCount - 1) && !homeTimeline.isFannedOut(followerCount)) {
+            homeTimeline.fanOutModeChanged(followee.getId());
+        }
+        homeTimeline.followsChanged(follower.getId());
+    }
+
+    @Transactional
+    public void unfollow(User follower, String username) {
+        var followee = userService.getByUsername(username);
+        if (followRepository.deleteByFollowerIdAndFolloweeId(follower.getId(), followee.getId()) == 0) {
+            return;
+        }
+        followRepository.addToFollowerCount(followee.getId(), -1);
+        var followerCount = followRepository.getFollowerCount(followee.getId());
+        if (!homeTimeline.isFannedOut(followerCount + 1) && homeTimeline.isFannedOut(followerCount)) {
+            homeTimeline.fanOutModeChanged(followee.getId());
+        }
+        homeTimeline.followsChanged(follower.getId());
+    }
+}
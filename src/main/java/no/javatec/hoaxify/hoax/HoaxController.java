@@ -1,40 +1,95 @@
 package no.javatec.hoaxify.hoax;
 
 import lombok.RequiredArgsConstructor;
+import no.javatec.hoaxify.configuration.RateLimitFilter;
 import no.javatec.hoaxify.hoax.vm.HoaxVM;
+import no.javatec.hoaxify.shared.ContentVersions;
 import no.javatec.hoaxify.shared.GenericResponse;
+import no.javatec.hoaxify.shared.PageVM;
 import no.javatec.hoaxify.user.User;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Size;
 import java.util.Collections;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/1.0")
 @RequiredArgsConstructor
+@Validated
 public class HoaxController {
 
+    static final int MAX_BATCH_SIZE = 100;
+
     private final HoaxService hoaxService;
+    private final HoaxJsonCache hoaxJsonCache;
+    private final ContentVersions contentVersions;
+    private final HoaxWriteBehind hoaxWriteBehind;
+    private final RateLimitFilter rateLimitFilter;
 
     @PostMapping("/hoaxes")
     HoaxVM createHoax(@Valid @RequestBody Hoax hoax, @AuthenticationPrincipal User user) {
+        if (hoaxWriteBehind.isEnabled()) {
+            return new HoaxVM(hoaxWriteBehind.append(user, List.of(hoax)).get(0));
+        }
         return new HoaxVM(hoaxService.save(user, hoax));
     }
 
+    @PostMapping("/hoaxes/batch")
+    List<HoaxVM> createHoaxes(@RequestBody
+                              @Size(min = 1, max = MAX_BATCH_SIZE, message = "{hoaxify.constraints.hoaxes.Size.message}")
+                              List<@Valid Hoax> hoaxes,
+                              @AuthenticationPrincipal User user) {
+        rateLimitFilter.acquireBatch(user, hoaxes.size());
+        var saved = hoaxWriteBehind.isEnabled()
+                ? hoaxWriteBehind.append(user, hoaxes)
+                : hoaxService.saveAll(user, hoaxes);
+        return saved.stream()
+                .map(HoaxVM::new)
+                .collect(Collectors.toList());
+    }
+
     @GetMapping("/hoaxes")
-    Page<HoaxVM> getAllHoaxes(Pageable pageable) {
-        return hoaxService.getAllHoaxes(pageable).map(HoaxVM::new);
+    PageVM<HoaxVM> getAllHoaxes(Pageable pageable, ServletWebRequest webRequest) {
+        if (ContentVersions.checkNotModified(webRequest, contentVersions.feed())) {
+            return null;
+        }
+        return new PageVM<>(hoaxService.getAllHoaxes(pageable).map(hoaxJsonCache::toHoaxVM));
     }
 
     @GetMapping("/users/{username}/hoaxes")
-    Page<HoaxVM> getHoaxesOfUser(@PathVariable String username, Pageable pageable) {
-        return hoaxService.getHoaxesOfUser(username, pageable).map(HoaxVM::new);
+    PageVM<HoaxVM> getHoaxesOfUser(@PathVariable String username, Pageable pageable,
+                                   ServletWebRequest webRequest) {
+        var version = contentVersions.user(username);
+        if (version.isPresent() && ContentVersions.checkNotModified(webRequest, version.get())) {
+            return null;
+        }
+        var hoaxes = hoaxService.getHoaxesOfUser(username, pageable);
+        if (version.isEmpty() && ContentVersions.checkNotModified(webRequest, contentVersions.userFound(username))) {
+            return null;
+        }
+        return new PageVM<>(hoaxes.map(hoaxJsonCache::toHoaxVM));
+    }
+
+    @GetMapping("/hoaxes/search")
+    PageVM<HoaxVM> searchHoaxes(@RequestParam("q") String text, Pageable pageable) {
+        return new PageVM<>(hoaxService.search(text, pageable).map(hoaxJsonCache::toHoaxVM));
+    }
+
+    @GetMapping({"/timeline", "/timeline/{id:[0-9]+}"})
+    List<HoaxVM> getHomeTimeline(@PathVariable(required = false) Long id, Pageable pageable,
+                                 @AuthenticationPrincipal User user) {
+        var beforeId = id == null ? Long.MAX_VALUE : id;
+        return hoaxService.getHomeTimeline(user, beforeId, pageable.getPageSize()).stream()
+                .map(hoaxJsonCache::toHoaxVM)
+                .collect(Collectors.toList());
     }
 
     @GetMapping({"/hoaxes/{id:[0-9]+}", "/users/{username}/hoaxes/{id:[0-9]+}"})
@@ -44,7 +99,8 @@ public class HoaxController {
                                         @RequestParam(name = "direction", defaultValue = "after") String direction,
                                         @RequestParam(name = "count", defaultValue = "false", required = false) boolean count) {
         if (!"after".equalsIgnoreCase(direction)) {
-            return ResponseEntity.ok(hoaxService.getOldHoaxes(id, username, pageable).map(HoaxVM::new));
+            var oldHoaxes = hoaxService.getOldHoaxes(id, username, pageable).map(hoaxJsonCache::toHoaxVM);
+            return ResponseEntity.ok(new PageVM<>(oldHoaxes));
         }
 
         if (count) {
@@ -53,15 +109,14 @@ public class HoaxController {
         }
 
         var list = hoaxService.getNewHoaxes(id, username, pageable).stream()
-                .map(HoaxVM::new)
+                .map(hoaxJsonCache::toHoaxVM)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(list);
     }
 
     @DeleteMapping("/hoaxes/{id:[0-9]+}")
-    @PreAuthorize("@hoaxSecurityService.isAllowedToDelete(#id, principal)")
-    GenericResponse deleteHoax(@PathVariable long id) {
-        hoaxService.deleteHoax(id);
+    GenericResponse deleteHoax(@PathVariable long id, @AuthenticationPrincipal User user) {
+        hoaxService.deleteHoax(id, user);
         return new GenericResponse("Hoax is removed");
     }
 }
@@ -0,0 +1,46 @@
+package no.javatec.hoaxify.hoax;
+
+import lombok.RequiredArgsConstructor;
+import no.javatec.hoaxify.configuration.OnH2Datasource;
+import no.javatec.hoaxify.hoax.vm.HoaxVM;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+/**
+ * Streaming counterpart of the read endpoints in {@link HoaxController}. Hoaxes are written as newline delimited
+ * JSON as the database emits them, one element requested at a time. r2dbc-h2 runs the embedded engine on the
+ * subscribing thread, so the query itself still blocks a request thread while it runs; what streaming saves is
+ * buffering the whole page. Only available on H2, see {@link OnH2Datasource}.
+ */
+@RestController
+@Conditional(OnH2Datasource.class)
+@RequestMapping(path = "/api/1.0/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+@RequiredArgsConstructor
+public class HoaxFeedController {
+
+    private final HoaxFeedRepository hoaxFeedRepository;
+
+    @GetMapping("/hoaxes")
+    Flux<HoaxVM> getAllHoaxes(Pageable pageable) {
+        return hoaxFeedRepository.findAll(pageable);
+    }
+
+    @GetMapping("/users/{username}/hoaxes")
+    Flux<HoaxVM> getHoaxesOfUser(@PathVariable String username, Pageable pageable) {
+        return hoaxFeedRepository.findByUsername(username, pageable);
+    }
+
+    @GetMapping({"/hoaxes/{id:[0-9]+}", "/users/{username}/hoaxes/{id:[0-9]+}"})
+    Flux<HoaxVM> getHoaxesRelative(@PathVariable long id,
+                                   @PathVariable(required = false) String username,
+                                   Pageable pageable,
+                                   @RequestParam(name = "direction", defaultValue = "after") String direction) {
+        if (!"after".equalsIgnoreCase(direction)) {
+            return hoaxFeedRepository.findOlder(id, username, pageable);
+        }
+        return hoaxFeedRepository.findNewer(id, username, pageable.getSort());
+    }
+}
@@ -0,0 +1,115 @@
+package no.javatec.hoaxify.hoax;
+
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import no.javatec.hoaxify.configuration.OnH2Datasource;
+import no.javatec.hoaxify.error.NotFoundException;
+import no.javatec.hoaxify.file.FileAttachmentVM;
+import no.javatec.hoaxify.hoax.vm.HoaxVM;
+import no.javatec.hoaxify.user.vm.UserVM;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the hoax feed straight into {@link HoaxVM}s over R2DBC, joining user and attachment in a single query.
+ */
+@Repository
+@Conditional(OnH2Datasource.class)
+@RequiredArgsConstructor
+public class HoaxFeedRepository {
+
+    private static final String SELECT_FEED = "SELECT h.id, h.content, h.timestamp, "
+            + "u.id AS user_id, u.username, u.display_name, u.image, f.name AS file_name, f.file_type "
+            + "FROM hoax h JOIN user u ON u.id = h.user_id LEFT JOIN file_attachment f ON f.hoax_id = h.id";
+
+    private static final Map<String, String> SORT_COLUMNS =
+            Map.of("id", "h.id", "content", "h.content", "timestamp", "h.timestamp");
+
+    private final DatabaseClient databaseClient;
+
+    public Flux<HoaxVM> findAll(Pageable pageable) {
+        return query("", pageable.getSort(), pageable, Map.of());
+    }
+
+    public Flux<HoaxVM> findByUsername(String username, Pageable pageable) {
+        return userId(username).flatMapMany(userId ->
+                query(" WHERE h.user_id = :userId", pageable.getSort(), pageable, Map.of("userId", userId)));
+    }
+
+    public Flux<HoaxVM> findOlder(long id, String username, Pageable pageable) {
+        return relative("h.id < :id", id, username, pageable.getSort(), pageable);
+    }
+
+    public Flux<HoaxVM> findNewer(long id, String username, Sort sort) {
+        return relative("h.id > :id", id, username, sort, Pageable.unpaged());
+    }
+
+    private Flux<HoaxVM> relative(String condition, long id, String username, Sort sort, Pageable pageable) {
+        if (username == null) {
+            return query(" WHERE " + condition, sort, pageable, Map.of("id", id));
+        }
+        return userId(username).flatMapMany(userId -> query(" WHERE " + condition + " AND h.user_id = :userId",
+                sort, pageable, Map.of("id", id, "userId", userId)));
+    }
+
+    private Mono<Long> userId(String username) {
+        return databaseClient.sql("SELECT id FROM user WHERE username = :username")
+                .bind("username", username)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new NotFoundException(username + " not found")));
+    }
+
+    private Flux<HoaxVM> query(String where, Sort sort, Pageable pageable, Map<String, Object> parameters) {
+        var sql = new StringBuilder(SELECT_FEED).append(where).append(orderBy(sort));
+        if (pageable.isPaged()) {
+            sql.append(" LIMIT ").append(pageable.getPageSize()).append(" OFFSET ").append(pageable.getOffset());
+        }
+        var spec = databaseClient.sql(sql.toString());
+        for (var parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec.map((row, metadata) -> toHoaxVM(row)).all();
+    }
+
+    private static String orderBy(Sort sort) {
+        var columns = sort.stream()
+                .filter(order -> SORT_COLUMNS.containsKey(order.getProperty()))
+                .map(order -> SORT_COLUMNS.get(order.getProperty()) + " " + order.getDirection())
+                .collect(Collectors.toList());
+        return columns.isEmpty() ? "" : " ORDER BY " + String.join(", ", columns);
+    }
+
+    private static HoaxVM toHoaxVM(Row row) {
+        var user = new UserVM();
+        user.setId(row.get("user_id", Long.class));
+        user.setUsername(row.get("username", String.class));
+        user.setDisplayName(row.get("display_name", String.class));
+        user.setImage(row.get("image", String.class));
+
+        var hoax = new HoaxVM();
+        hoax.setId(row.get("id", Long.class));
+        hoax.setContent(row.get("content", String.class));
+        hoax.setDate(row.get("timestamp", LocalDateTime.class).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        hoax.setUser(user);
+
+        var fileName = row.get("file_name", String.class);
+        if (fileName != null) {
+            var attachment = new FileAttachmentVM();
+            attachment.setName(fileName);
+            attachment.setFileType(row.get("file_type", String.class));
+            hoax.setAttachment(attachment);
+        }
+        return hoax;
+    }
+}
@@ -0,0 +1,168 @@
+package no.javatec.hoaxify.hoax;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import no.javatec.hoaxify.configuration.AppConfiguration;
+import no.javatec.hoaxify.file.FileAttachment;
+import no.javatec.hoaxify.hoax.vm.HoaxVM;
+import no.javatec.hoaxify.hoax.vm.PrecomputedHoaxVM;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the serialized JSON of {@link HoaxVM}s, keyed by hoax id. A hoax never changes after it is
+ * created, so an entry only goes stale when the hoax is deleted or its author is updated.
+ * <p>
+ * Lock free, so feed reads never queue on a monitor (or pin a virtual thread): entries live in a concurrent map
+ * with a secondary index by author, and the size is kept with second-chance (clock) eviction, which spares entries
+ * read since they were last considered.
+ */
+@Component
+public class HoaxJsonCache {
+
+    private final ObjectMapper objectMapper;
+    private final int maxSize;
+    private final Map<Long, Fragment> fragments = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> hoaxIdsByUser = new ConcurrentHashMap<>();
+    private final Queue<Long> clock = new ConcurrentLinkedQueue<>();
+    // bumped on every eviction, so a fragment built from data read before the eviction is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public HoaxJsonCache(ObjectMapper objectMapper, AppConfiguration appConfiguration) {
+        this.objectMapper = objectMapper;
+        this.maxSize = appConfiguration.getHoaxJsonCacheSize();
+    }
+
+    public HoaxVM toHoaxVM(Hoax hoax) {
+        if (isProcessing(hoax.getAttachment())) {
+            return new HoaxVM(hoax);
+        }
+
+        var cached = fragments.get(hoax.getId());
+        if (cached != null) {
+            cached.referenced = true;
+            return new PrecomputedHoaxVM(hoax, cached.json);
+        }
+
+        var generationBefore = generation.get();
+        var userId = hoax.getUser().getId();
+        var fragment = new Fragment(userId, serialize(new HoaxVM(hoax)));
+        if (fragments.putIfAbsent(hoax.getId(), fragment) == null) {
+            hoaxIdsByUser.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(hoax.getId());
+            // an eviction that started after the data was read may have missed this entry
+            if (generation.get() != generationBefore) {
+                remove(hoax.getId(), fragment);
+            } else {
+                clock.add(hoax.getId());
+                evictOverflow();
+            }
+        }
+        return new PrecomputedHoaxVM(hoax, fragment.json);
+    }
+
+    public void evict(long hoaxId) {
+        evictAfterCommit(() -> {
+            var fragment = fragments.get(hoaxId);
+            if (fragment != null) {
+                remove(hoaxId, fragment);
+            }
+        });
+    }
+
+    public void evictUser(long userId) {
+        evictAfterCommit(() -> {
+            var hoaxIds = hoaxIdsByUser.remove(userId);
+            if (hoaxIds != null) {
+                hoaxIds.forEach(fragments::remove);
+            }
+        });
+    }
+
+    // evicts now, and again once the transaction has committed, so readers in between cannot cache old data
+    private void evictAfterCommit(Runnable eviction) {
+        evictNow(eviction);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(eviction);
+                }
+            });
+        }
+    }
+
+    private void evictNow(Runnable eviction) {
+        generation.incrementAndGet();
+        eviction.run();
+    }
+
+    private void evictOverflow() {
+        while (fragments.size() > maxSize) {
+            var hoaxId = clock.poll();
+            if (hoaxId == null) {
+                return;
+            }
+            var fragment = fragments.get(hoaxId);
+            if (fragment == null) {
+                continue;
+            }
+            if (fragment.referenced) {
+                fragment.referenced = false;
+                clock.add(hoaxId);
+            } else {
+                remove(hoaxId, fragment);
+            }
+        }
+    }
+
+    private void remove(long hoaxId, Fragment fragment) {
+        if (fragments.remove(hoaxId, fragment)) {
+            hoaxIdsByUser.computeIfPresent(fragment.userId, (userId, hoaxIds) -> {
+                hoaxIds.remove(hoaxId);
+                return hoaxIds.isEmpty() ? null : hoaxIds;
+            });
+        }
+    }
+
+    int size() {
+        return fragments.size();
+    }
+
+    private SerializedString serialize(HoaxVM hoaxVM) {
+        try {
+            var json = new SerializedString(new String(objectMapper.writeValueAsBytes(hoaxVM), StandardCharsets.UTF_8));
+            // encodes and keeps the UTF-8 bytes now, rather than on the first response
+            json.asUnquotedUTF8();
+            return json;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isProcessing(FileAttachment attachment) {
+        return attachment != null && attachment.getStatus() == FileAttachment.Status.PROCESSING;
+    }
+
+    private static class Fragment {
+
+        private final long userId;
+        private final SerializedString json;
+        private volatile boolean referenced;
+
+        Fragment(long userId, SerializedString json) {
+            this.userId = userId;
+            this.json = json;
+        }
+    }
+}
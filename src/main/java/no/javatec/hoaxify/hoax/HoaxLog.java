@@ -0,0 +1,228 @@
+package no.javatec.hoaxify.hoax;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped append log of accepted hoaxes that are not in the database yet, used as a ring buffer.
+ * <p>
+ * The file starts with the offset up to which records have been applied, followed by records of
+ * {@code [length][crc32][payload]}. Every record is followed by a zero length marking the end of the log, and its own
+ * length is written last, so a record cut short by a crash is never read back. A record that does not fit before the
+ * end of the file goes to the beginning, into the space already applied, and a length of {@code -1} where it did not
+ * fit sends readers there. Once every record is applied the log starts over from the beginning of the file.
+ */
+class HoaxLog implements Closeable {
+
+    static final int HEADER = Integer.BYTES;
+    private static final int RECORD_HEADER = 2 * Integer.BYTES;
+    private static final int WRAP = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    // unapplied records run from start to end, by way of wrapAt and back to the beginning when wrapAt is set
+    private int start = HEADER;
+    private int end = HEADER;
+    private int wrapAt = -1;
+    private long lastId;
+
+    HoaxLog(Path path, int size) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Reads the records that were appended but not applied, and positions the log after them. A record that fails its
+     * checksum, or does not follow the previous one in id order, ends the log.
+     */
+    synchronized List<Entry> recover() {
+        var entries = new ArrayList<Entry>();
+        start = Math.max(HEADER, buffer.getInt(0));
+        wrapAt = -1;
+        var position = start;
+        while (position + RECORD_HEADER <= buffer.capacity()) {
+            var length = buffer.getInt(position);
+            if (length == WRAP && wrapAt == -1 && position >= start) {
+                wrapAt = position;
+                position = HEADER;
+                continue;
+            }
+            if (length <= 0 || position + RECORD_HEADER + length > buffer.capacity()
+                    || (wrapAt != -1 && position + RECORD_HEADER + length + Integer.BYTES > start)) {
+                break;
+            }
+            var payload = new byte[length];
+            buffer.duplicate().position(position + RECORD_HEADER).get(payload);
+            if (buffer.getInt(position + Integer.BYTES) != checksum(payload)) {
+                break;
+            }
+            var entry = Entry.decode(payload);
+            if (entry.id <= lastId) {
+                break;
+            }
+            lastId = entry.id;
+            position += RECORD_HEADER + length;
+            entry.end = position;
+            entries.add(entry);
+        }
+        if (wrapAt != -1 && position == HEADER) {
+            // the log ended right at the wrap; nothing was written at the beginning yet
+            position = wrapAt;
+            wrapAt = -1;
+        }
+        end = position;
+        terminate(end);
+        return entries;
+    }
+
+    /**
+     * Appends all entries or none of them.
+     *
+     * @return false when the log has no room for the entries
+     */
+    synchronized boolean append(List<Entry> entries) {
+        var payloads = new ArrayList<byte[]>(entries.size());
+        var positions = new int[entries.size()];
+        var position = end;
+        var wrapped = wrapAt != -1;
+        var wrapFrom = -1;
+        for (int i = 0; i < entries.size(); i++) {
+            var payload = entries.get(i).encode();
+            payloads.add(payload);
+            // room for the record and the end marker after it
+            var size = RECORD_HEADER + payload.length + Integer.BYTES;
+            if (wrapped ? position + size > start : position + size > buffer.capacity()) {
+                if (wrapped || HEADER + size > start) {
+                    return false;
+                }
+                wrapFrom = position;
+                wrapped = true;
+                position = HEADER;
+            }
+            positions[i] = position;
+            position += size - Integer.BYTES;
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            var payload = payloads.get(i);
+            var at = positions[i];
+            var next = at + RECORD_HEADER + payload.length;
+            buffer.duplicate().position(at + RECORD_HEADER).put(payload);
+            terminate(next);
+            buffer.putInt(at + Integer.BYTES, checksum(payload));
+            buffer.putInt(at, payload.length);
+            if (at == HEADER && wrapFrom != -1) {
+                // only now that a complete record is waiting there are readers sent to the beginning
+                buffer.putInt(wrapFrom, WRAP);
+                wrapAt = wrapFrom;
+            }
+            entries.get(i).end = next;
+            lastId = entries.get(i).id;
+            end = next;
+        }
+        return true;
+    }
+
+    /**
+     * Marks every record up to {@code offset} as applied, which frees the space they took; the log is emptied when
+     * that is all of them.
+     */
+    synchronized void applied(int offset) {
+        if (offset == end) {
+            terminate(HEADER);
+            offset = HEADER;
+            end = HEADER;
+            wrapAt = -1;
+        } else if (wrapAt != -1 && offset <= end) {
+            // past the wrap, the records before it are all applied
+            wrapAt = -1;
+        }
+        start = offset;
+        buffer.putInt(0, offset);
+    }
+
+    synchronized int size() {
+        return wrapAt == -1 ? end - start : (wrapAt - start) + (end - HEADER);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void terminate(int position) {
+        if (position + Integer.BYTES <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        var crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    static class Entry {
+
+        final long id;
+        final long userId;
+        final String username;
+        final long timestamp;
+        final String content;
+        // 0 when the hoax has no attachment
+        final long attachmentId;
+        // offset just past the record, set when appended or recovered
+        int end;
+
+        Entry(long id, long userId, String username, long timestamp, String content) {
+            this(id, userId, username, timestamp, content, 0);
+        }
+
+        Entry(long id, long userId, String username, long timestamp, String content, long attachmentId) {
+            this.id = id;
+            this.userId = userId;
+            this.username = username;
+            this.timestamp = timestamp;
+            this.content = content;
+            this.attachmentId = attachmentId;
+        }
+
+        private byte[] encode() {
+            var username = this.username.getBytes(StandardCharsets.UTF_8);
+            var content = this.content.getBytes(StandardCharsets.UTF_8);
+            return ByteBuffer.allocate(4 * Long.BYTES + 2 * Integer.BYTES + username.length + content.length)
+                    .putLong(id)
+                    .putLong(userId)
+                    .putLong(timestamp)
+                    .putInt(username.length).put(username)
+                    .putInt(content.length).put(content)
+                    .putLong(attachmentId)
+                    .array();
+        }
+
+        private static Entry decode(byte[] payload) {
+            var buffer = ByteBuffer.wrap(payload);
+            var id = buffer.getLong();
+            var userId = buffer.getLong();
+            var timestamp = buffer.getLong();
+            var username = new byte[buffer.getInt()];
+            buffer.get(username);
+            var content = new byte[buffer.getInt()];
+            buffer.get(content);
+            // records written before attachments went through the log end here
+            var attachmentId = buffer.remaining() >= Long.BYTES ? buffer.getLong() : 0;
+            return new Entry(id, userId, new String(username, StandardCharsets.UTF_8), timestamp,
+                    new String(content, StandardCharsets.UTF_8), attachmentId);
+        }
+    }
+}
@@ -5,7 +5,21 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface HoaxRepository extends JpaRepository<Hoax, Long>, JpaSpecificationExecutor<Hoax> {
     Page<Hoax> findByUser(User user, Pageable pageable);
+
+    List<HoaxText> findByIdGreaterThanOrderById(long id, Pageable pageable);
+
+    @Query("select h.id from Hoax h where h.user.id in :userIds and h.id < :beforeId order by h.id desc")
+    List<Long> findIdsByUserIdInAndIdLessThan(Collection<Long> userIds, long beforeId, Pageable pageable);
+
+    @Modifying
+    @Query("delete from Hoax h where h.id = :id and h.user.id = :userId")
+    int deleteByIdAndUserId(long id, long userId);
 }
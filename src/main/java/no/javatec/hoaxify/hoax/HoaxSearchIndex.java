@@ -0,0 +1,281 @@
+package no.javatec.hoaxify.hoax;
+
+import lombok.extern.slf4j.Slf4j;
+import no.javatec.hoaxify.configuration.AppConfiguration;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded Lucene index of hoax content. Only ids are stored; search returns the ids of the matching hoaxes in
+ * relevance order, and the hoaxes themselves are loaded by primary key. The index follows committed hoax changes,
+ * and is rebuilt from the database at startup when it does not hold the same number of hoaxes.
+ * <p>
+ * Every document is stamped with the current rebuild generation. A rebuild starts a new generation, rewrites the
+ * hoaxes in place and then drops the documents of older generations, so hoaxes indexed while it runs are neither
+ * duplicated nor lost. Hoaxes removed while a rebuild runs are remembered until it ends, so a hoax the rebuild read
+ * before it was deleted is not written back.
+ */
+@Slf4j
+@Component
+public class HoaxSearchIndex implements DisposableBean {
+
+    private static final String ID = "id";
+    private static final String CONTENT = "content";
+    private static final String GENERATION = "generation";
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final HoaxRepository hoaxRepository;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final AtomicBoolean changed = new AtomicBoolean();
+    // read held while a document is stamped and written, write held while a rebuild moves to the next generation
+    private final ReadWriteLock generationLock = new ReentrantReadWriteLock();
+    private long generation;
+    // ids removed since the running rebuild started, or null when none runs; guarded by removals
+    private final Object removals = new Object();
+    private Set<Long> removedDuringRebuild;
+
+    HoaxSearchIndex(AppConfiguration appConfiguration, HoaxRepository hoaxRepository) throws IOException {
+        this.hoaxRepository = hoaxRepository;
+        var indexPath = appConfiguration.getSearchIndexPath();
+        this.directory = indexPath == null ? new ByteBuffersDirectory() : FSDirectory.open(Paths.get(indexPath));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    public void index(Collection<Hoax> hoaxes) {
+        afterCommit(() -> {
+            for (var hoax : hoaxes) {
+                write(hoax.getId(), hoax.getContent());
+            }
+        });
+    }
+
+    public void remove(long hoaxId) {
+        afterCommit(() -> {
+            synchronized (removals) {
+                if (removedDuringRebuild != null) {
+                    removedDuringRebuild.add(hoaxId);
+                }
+                writer.deleteDocuments(idTerm(hoaxId));
+            }
+        });
+    }
+
+    /**
+     * Matches hoaxes containing every word of the query, best matches first.
+     */
+    public Page<Long> search(String text, Pageable pageable) {
+        var query = toQuery(text);
+        if (query == null) {
+            return Page.empty(pageable);
+        }
+        try {
+            if (changed.getAndSet(false)) {
+                searcherManager.maybeRefreshBlocking();
+            }
+            var searcher = searcherManager.acquire();
+            try {
+                var total = searcher.count(query);
+                var ids = new ArrayList<Long>();
+                // collecting offset + size hits is only worth it when the page is not past the end
+                if (pageable.getOffset() < total) {
+                    var topDocs = searcher.search(query, (int) (pageable.getOffset() + pageable.getPageSize()));
+                    for (int i = (int) pageable.getOffset(); i < topDocs.scoreDocs.length; i++) {
+                        ids.add(Long.parseLong(searcher.doc(topDocs.scoreDocs[i].doc).get(ID)));
+                    }
+                }
+                return new PageImpl<>(ids, pageable, total);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Replaces the whole index with the hoaxes in the database, reading them in id order in batches.
+     */
+    public synchronized long rebuild() throws IOException {
+        long rebuildGeneration;
+        generationLock.writeLock().lock();
+        try {
+            rebuildGeneration = ++generation;
+        } finally {
+            generationLock.writeLock().unlock();
+        }
+        synchronized (removals) {
+            removedDuringRebuild = new HashSet<>();
+        }
+        try {
+            var count = rewriteAll();
+            // anything older was neither in the database nor indexed since the rebuild started
+            writer.deleteDocuments(new BooleanQuery.Builder()
+                    .add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+                    .add(new TermQuery(generationTerm(rebuildGeneration)), BooleanClause.Occur.MUST_NOT)
+                    .build());
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            log.info("Search index rebuilt with {} hoaxes", count);
+            return count;
+        } finally {
+            synchronized (removals) {
+                removedDuringRebuild = null;
+            }
+        }
+    }
+
+    private long rewriteAll() throws IOException {
+        long count = 0;
+        long lastId = -1;
+        List<HoaxText> batch;
+        do {
+            batch = hoaxRepository.findByIdGreaterThanOrderById(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (var hoax : batch) {
+                // checked and written under the lock, so a removal cannot slip in between
+                synchronized (removals) {
+                    if (!removedDuringRebuild.contains(hoax.getId())) {
+                        write(hoax.getId(), hoax.getContent());
+                        count++;
+                    }
+                }
+                lastId = hoax.getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        return count;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfOutOfSync() throws IOException {
+        if (writer.getDocStats().numDocs != hoaxRepository.count()) {
+            rebuild();
+        }
+    }
+
+    // changes are searchable right away through the writer; committing only makes them survive a restart
+    @Scheduled(fixedRate = 60 * 1000)
+    public void commit() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    // stamped under the read lock, so a document of the previous generation cannot land after a rebuild began
+    private void write(long hoaxId, String content) throws IOException {
+        generationLock.readLock().lock();
+        try {
+            writer.updateDocument(idTerm(hoaxId), toDocument(hoaxId, content, generation));
+        } finally {
+            generationLock.readLock().unlock();
+        }
+    }
+
+    private Query toQuery(String text) {
+        var query = new BooleanQuery.Builder();
+        var terms = 0;
+        try (var tokens = analyzer.tokenStream(CONTENT, text)) {
+            var term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                query.add(new TermQuery(new Term(CONTENT, term.toString())), BooleanClause.Occur.MUST);
+                terms++;
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms == 0 ? null : query.build();
+    }
+
+    private void afterCommit(IndexChange change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    private void apply(IndexChange change) {
+        try {
+            change.apply();
+            changed.set(true);
+        } catch (IOException e) {
+            log.error("Search index update failed, the change is missing from search until the index is rebuilt", e);
+        }
+    }
+
+    private static Term idTerm(long hoaxId) {
+        return new Term(ID, Long.toString(hoaxId));
+    }
+
+    private static Term generationTerm(long generation) {
+        return new Term(GENERATION, Long.toString(generation));
+    }
+
+    private static Document toDocument(long hoaxId, String content, long generation) {
+        var document = new Document();
+        document.add(new StringField(ID, Long.toString(hoaxId), Field.Store.YES));
+        document.add(new TextField(CONTENT, content, Field.Store.NO));
+        document.add(new StringField(GENERATION, Long.toString(generation), Field.Store.NO));
+        return document;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    private interface IndexChange {
+        void apply() throws IOException;
+    }
+}
@@ -0,0 +1,27 @@
+package no.javatec.hoaxify.hoax;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * {@code POST /actuator/searchindex} rebuilds the search index from the database, once the endpoint is exposed
+ * with {@code management.endpoints.web.exposure.include}.
+ */
+@Component
+@Endpoint(id = "searchindex")
+@RequiredArgsConstructor
+public class HoaxSearchIndexEndpoint {
+
+    private final HoaxSearchIndex hoaxSearchIndex;
+
+    @WriteOperation
+    public Map<String, Long> rebuild() throws IOException {
+        return Collections.singletonMap("indexed", hoaxSearchIndex.rebuild());
+    }
+}
@@ -1,18 +1,31 @@
 package no.javatec.hoaxify.hoax;
 
 import lombok.RequiredArgsConstructor;
+import no.javatec.hoaxify.error.BadRequestException;
+import no.javatec.hoaxify.error.NotFoundException;
+import no.javatec.hoaxify.file.FileAttachment;
 import no.javatec.hoaxify.file.FileAttachmentRepository;
 import no.javatec.hoaxify.file.FileService;
+import no.javatec.hoaxify.shared.ContentVersions;
 import no.javatec.hoaxify.user.User;
 import no.javatec.hoaxify.user.UserService;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -22,6 +35,10 @@ public class HoaxService {
     private final HoaxRepository hoaxRepository;
     private final FileAttachmentRepository fileAttachmentRepository;
     private final FileService fileService;
+    private final HoaxJsonCache hoaxJsonCache;
+    private final ContentVersions contentVersions;
+    private final HoaxSearchIndex hoaxSearchIndex;
+    private final HomeTimeline homeTimeline;
 
     @Transactional
     public Hoax save(User user, Hoax hoax) {
@@ -29,12 +46,55 @@ public class HoaxService {
         hoax.setUser(user);
 
         if (hoax.getAttachment() != null) {
-            var inDb = fileAttachmentRepository.findById(hoax.getAttachment().getId()).get();
+            var attachmentId = hoax.getAttachment().getId();
+            var inDb = fileAttachmentRepository.findById(attachmentId)
+                    .orElseThrow(() -> new BadRequestException("Attachment " + attachmentId + " not found"));
             inDb.setHoax(hoax);
             hoax.setAttachment(inDb);
         }
 
-        return this.hoaxRepository.save(hoax);
+        contentVersions.hoaxChanged(user.getUsername(), hoax.getTimestamp().getTime());
+        var saved = this.hoaxRepository.save(hoax);
+        userService.hoaxesPosted(user.getId(), 1, hoax.getAttachment() == null ? 0 : 1, hoax.getTimestamp());
+        hoaxSearchIndex.index(List.of(saved));
+        homeTimeline.fanOut(user, List.of(saved));
+        return saved;
+    }
+
+    @Transactional
+    public List<Hoax> saveAll(User user, List<Hoax> hoaxes) {
+        var attachmentIds = hoaxes.stream()
+                .map(Hoax::getAttachment)
+                .filter(Objects::nonNull)
+                .map(FileAttachment::getId)
+                .collect(Collectors.toList());
+        if (new HashSet<>(attachmentIds).size() != attachmentIds.size()) {
+            throw new BadRequestException("An attachment can only be used by one hoax");
+        }
+        var attachmentsInDb = fileAttachmentRepository.findAllById(attachmentIds).stream()
+                .collect(Collectors.toMap(FileAttachment::getId, Function.identity()));
+
+        var timestamp = new Date();
+        for (var hoax : hoaxes) {
+            hoax.setTimestamp(timestamp);
+            hoax.setUser(user);
+
+            if (hoax.getAttachment() != null) {
+                var inDb = attachmentsInDb.get(hoax.getAttachment().getId());
+                if (inDb == null) {
+                    throw new BadRequestException("Attachment " + hoax.getAttachment().getId() + " not found");
+                }
+                inDb.setHoax(hoax);
+                hoax.setAttachment(inDb);
+            }
+        }
+
+        contentVersions.hoaxChanged(user.getUsername(), timestamp.getTime());
+        var saved = this.hoaxRepository.saveAll(hoaxes);
+        userService.hoaxesPosted(user.getId(), saved.size(), attachmentIds.size(), timestamp);
+        hoaxSearchIndex.index(saved);
+        homeTimeline.fanOut(user, saved);
+        return saved;
     }
 
     public Page<Hoax> getAllHoaxes(Pageable pageable) {
@@ -70,13 +130,60 @@ public class HoaxService {
         return hoaxRepository.count(spec);
     }
 
+    // the ownership check is part of both deletes; only a miss costs an extra lookup to tell 403 from 404
     @Transactional
-    public void deleteHoax(long hoaxId) {
-        var hoax = hoaxRepository.getOne(hoaxId);
-        if (hoax.getAttachment() != null) {
-            fileService.deleteAttachmentImage(hoax.getAttachment().getName());
+    public void deleteHoax(long hoaxId, User user) {
+        var attachmentNames = fileAttachmentRepository.deleteOfOwnedHoax(hoaxId, user.getId());
+        if (hoaxRepository.deleteByIdAndUserId(hoaxId, user.getId()) == 0) {
+            if (hoaxRepository.existsById(hoaxId)) {
+                throw new AccessDeniedException("Hoax " + hoaxId + " is owned by another user");
+            }
+            throw new NotFoundException("Hoax " + hoaxId + " not found");
         }
-        hoaxRepository.deleteById(hoaxId);
+        userService.hoaxDeleted(user, attachmentNames.size());
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                attachmentNames.forEach(fileService::deleteAttachmentImage);
+            }
+        });
+        contentVersions.hoaxChanged(user.getUsername(), System.currentTimeMillis());
+        hoaxJsonCache.evict(hoaxId);
+        hoaxSearchIndex.remove(hoaxId);
+        homeTimeline.remove(user, hoaxId);
+    }
+
+    // a hoax deleted after the index was searched, before its removal reached the index, is left out of the page
+    public Page<Hoax> search(String text, Pageable pageable) {
+        var ids = hoaxSearchIndex.search(text, pageable);
+        return new PageImpl<>(findAllInOrder(ids.getContent()), pageable, ids.getTotalElements());
+    }
+
+    // deleted hoaxes are not taken out of timelines; they are left out here
+    // a hoax deleted while its id was being read is skipped, and the page filled up from further back
+    public List<Hoax> getHomeTimeline(User user, long beforeId, int size) {
+        var hoaxes = new ArrayList<Hoax>(size);
+        var wanted = size;
+        var ids = homeTimeline.read(user, beforeId, wanted);
+        while (true) {
+            var found = findAllInOrder(ids);
+            hoaxes.addAll(found);
+            if (found.size() == ids.size() || ids.size() < wanted) {
+                return hoaxes;
+            }
+            wanted = size - hoaxes.size();
+            ids = homeTimeline.read(user, ids.get(ids.size() - 1), wanted);
+        }
+    }
+
+    private List<Hoax> findAllInOrder(List<Long> ids) {
+        var hoaxes = hoaxRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Hoax::getId, Function.identity()));
+        return ids.stream()
+                .map(hoaxes::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     private Specification<Hoax> userIs(User user) {
@@ -0,0 +1,8 @@
+package no.javatec.hoaxify.hoax;
+
+// what the search index needs of a hoax, without loading its user and attachment
+interface HoaxText {
+    long getId();
+
+    String getContent();
+}
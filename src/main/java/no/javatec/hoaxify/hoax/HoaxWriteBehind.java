@@ -0,0 +1,351 @@
+package no.javatec.hoaxify.hoax;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import no.javatec.hoaxify.configuration.AppConfiguration;
+import no.javatec.hoaxify.error.BadRequestException;
+import no.javatec.hoaxify.error.ServiceUnavailableException;
+import no.javatec.hoaxify.file.AttachmentReservations;
+import no.javatec.hoaxify.file.FileAttachment;
+import no.javatec.hoaxify.file.FileAttachmentRepository;
+import no.javatec.hoaxify.shared.ContentVersions;
+import no.javatec.hoaxify.user.User;
+import no.javatec.hoaxify.user.UserService;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Optional write-behind path for new hoaxes. An accepted hoax gets an id from a block taken from the id sequence,
+ * is appended to the {@link HoaxLog} and acknowledged right away; a single writer thread inserts whatever has been
+ * appended meanwhile as one JDBC batch in one transaction (group commit), and links the attachments.
+ * <p>
+ * While it is enabled every new hoax takes this path, attachments included, so the writer is the only thing that
+ * inserts hoaxes. An attachment is checked and reserved when its hoax is appended, and released once the hoax is
+ * saved, so the writer always finds it unlinked. Ids are taken and appended under one lock and the writer commits in log order, so hoaxes become
+ * visible in id order and "newer than" polls miss nothing. Other tables draw from the same sequence; that leaves gaps
+ * between hoax ids but does not change their order, since a new block is always above every id handed out before.
+ * <p>
+ * An acknowledged hoax survives a crash of the process and is inserted when the log is replayed at the next start,
+ * but is only visible once its batch is committed, usually within milliseconds.
+ */
+@Slf4j
+@Component
+public class HoaxWriteBehind implements DisposableBean {
+
+    private static final int ID_BLOCK_SIZE = 100;
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserService userService;
+    private final ContentVersions contentVersions;
+    private final HoaxSearchIndex hoaxSearchIndex;
+    private final HomeTimeline homeTimeline;
+    private final FileAttachmentRepository fileAttachmentRepository;
+    private final AttachmentReservations attachmentReservations;
+    private final HoaxLog hoaxLog;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer = new Thread(this::write, "hoax-write-behind");
+    private final List<Long> ids = new ArrayList<>();
+    private volatile boolean running = true;
+
+    HoaxWriteBehind(AppConfiguration appConfiguration, JdbcTemplate jdbcTemplate,
+                    PlatformTransactionManager transactionManager, UserService userService,
+                    ContentVersions contentVersions, HoaxSearchIndex hoaxSearchIndex, HomeTimeline homeTimeline,
+                    FileAttachmentRepository fileAttachmentRepository, AttachmentReservations attachmentReservations,
+                    MeterRegistry meterRegistry) throws IOException {
+        var config = appConfiguration.getWriteBehind();
+        this.enabled = config.isEnabled();
+        this.maxBatchSize = config.getMaxBatchSize();
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userService = userService;
+        this.contentVersions = contentVersions;
+        this.hoaxSearchIndex = hoaxSearchIndex;
+        this.homeTimeline = homeTimeline;
+        this.fileAttachmentRepository = fileAttachmentRepository;
+        this.attachmentReservations = attachmentReservations;
+        if (!enabled) {
+            this.hoaxLog = null;
+            return;
+        }
+        this.hoaxLog = new HoaxLog(Paths.get(config.getLogPath()), (int) config.getLogSize().toBytes());
+        // replayed ahead of anything accepted after the start
+        var recovered = hoaxLog.recover();
+        recovered.forEach(entry -> queue.add(new Pending(entry, true)));
+        attachmentReservations.reserve(attachmentIds(recovered));
+        if (!recovered.isEmpty()) {
+            log.info("Replaying {} hoaxes from the write-behind log", recovered.size());
+        }
+        meterRegistry.gaugeCollectionSize("hoaxify.writebehind.pending", Collections.emptyList(), queue);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends the hoaxes to the log and fills in their ids, timestamp, user and attachments as {@code HoaxService}
+     * would. Their attachments are reserved until the hoaxes are saved.
+     *
+     * @throws BadRequestException if an attachment is not an unused upload of the user, or is used by more than one
+     *                             hoax
+     * @throws ServiceUnavailableException if the log is full because the database is not keeping up
+     */
+    public List<Hoax> append(User user, List<Hoax> hoaxes) {
+        var attachmentIds = hoaxes.stream()
+                .map(Hoax::getAttachment)
+                .filter(Objects::nonNull)
+                .map(FileAttachment::getId)
+                .collect(Collectors.toList());
+        if (new HashSet<>(attachmentIds).size() != attachmentIds.size()
+                || !attachmentReservations.reserve(attachmentIds)) {
+            throw new BadRequestException("An attachment can only be used by one hoax");
+        }
+        try {
+            // read after reserving, so an attachment linked by a hoax saved meanwhile is seen as linked
+            var attachmentsInDb = fileAttachmentRepository.findAllById(attachmentIds).stream()
+                    .collect(Collectors.toMap(FileAttachment::getId, Function.identity()));
+            for (var hoax : hoaxes) {
+                if (hoax.getAttachment() != null) {
+                    var inDb = attachmentsInDb.get(hoax.getAttachment().getId());
+                    if (inDb == null || !Objects.equals(inDb.getOwnerId(), user.getId())) {
+                        throw new BadRequestException("Attachment " + hoax.getAttachment().getId() + " not found");
+                    }
+                    if (inDb.getHoax() != null) {
+                        throw new BadRequestException("An attachment can only be used by one hoax");
+                    }
+                    hoax.setAttachment(inDb);
+                }
+            }
+            return appendToLog(user, hoaxes);
+        } catch (RuntimeException e) {
+            attachmentReservations.release(attachmentIds);
+            throw e;
+        }
+    }
+
+    private synchronized List<Hoax> appendToLog(User user, List<Hoax> hoaxes) {
+        var timestamp = new Date();
+        var entries = new ArrayList<HoaxLog.Entry>(hoaxes.size());
+        for (var hoax : hoaxes) {
+            hoax.setId(nextId());
+            hoax.setTimestamp(timestamp);
+            hoax.setUser(user);
+            var attachmentId = hoax.getAttachment() == null ? 0 : hoax.getAttachment().getId();
+            entries.add(new HoaxLog.Entry(hoax.getId(), user.getId(), user.getUsername(), timestamp.getTime(),
+                    hoax.getContent(), attachmentId));
+        }
+        if (!hoaxLog.append(entries)) {
+            throw new ServiceUnavailableException("Too many hoaxes are waiting to be saved, try again later");
+        }
+        entries.forEach(entry -> queue.add(new Pending(entry, false)));
+        return hoaxes;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    private long nextId() {
+        if (ids.isEmpty()) {
+            ids.addAll(jdbcTemplate.queryForList(
+                    "select next value for hibernate_sequence from system_range(1, ?)", Long.class, ID_BLOCK_SIZE));
+        }
+        return ids.remove(0);
+    }
+
+    private void write() {
+        var batch = new ArrayList<Pending>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                if (!insertWithRetry(batch)) {
+                    return;
+                }
+                hoaxLog.applied(batch.get(batch.size() - 1).entry.end);
+                attachmentReservations.release(
+                        attachmentIds(batch.stream().map(pending -> pending.entry).collect(Collectors.toList())));
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // false when stopped before the batch went in; it stays in the log and is replayed at the next start
+    private boolean insertWithRetry(List<Pending> batch) throws InterruptedException {
+        while (true) {
+            try {
+                insert(batch);
+                return true;
+            } catch (DataIntegrityViolationException e) {
+                if (batch.size() == 1) {
+                    log.error("Dropped hoax {} of user {} from the write-behind log",
+                            batch.get(0).entry.id, batch.get(0).entry.userId, e);
+                    return true;
+                }
+                // one bad hoax, e.g. of a user deleted meanwhile, must not hold up the rest
+                for (var pending : batch) {
+                    if (!insertWithRetry(List.of(pending))) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (RuntimeException e) {
+                log.warn("Inserting {} hoaxes failed, retrying", batch.size(), e);
+                if (!running) {
+                    return false;
+                }
+                Thread.sleep(RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    private void insert(List<Pending> batch) {
+        transactionTemplate.executeWithoutResult(status -> {
+            var entries = skipInserted(batch);
+            if (entries.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate("insert into hoax (id, content, timestamp, user_id) values (?, ?, ?, ?)",
+                    entries.stream()
+                            .map(entry -> new Object[]{
+                                    entry.id, entry.content, new Timestamp(entry.timestamp), entry.userId})
+                            .collect(Collectors.toList()));
+
+            var linked = linkAttachments(entries);
+
+            var byUser = entries.stream()
+                    .collect(Collectors.groupingBy(entry -> entry.userId, LinkedHashMap::new, Collectors.toList()));
+            for (var userEntries : byUser.values()) {
+                var last = userEntries.get(userEntries.size() - 1);
+                var author = new User();
+                author.setId(last.userId);
+                author.setUsername(last.username);
+                var hoaxes = userEntries.stream().map(entry -> toHoax(entry, author)).collect(Collectors.toList());
+                var attachments = (int) userEntries.stream().filter(linked::contains).count();
+
+                userService.hoaxesPosted(author.getId(), hoaxes.size(), attachments, new Date(last.timestamp));
+                contentVersions.hoaxChanged(author.getUsername(), last.timestamp);
+                hoaxSearchIndex.index(hoaxes);
+                homeTimeline.fanOut(author, hoaxes);
+            }
+        });
+    }
+
+    // attachments are reserved when appended, so one that cannot be linked was changed outside the application
+    private Set<HoaxLog.Entry> linkAttachments(List<HoaxLog.Entry> entries) {
+        var withAttachment = entries.stream()
+                .filter(entry -> entry.attachmentId != 0)
+                .collect(Collectors.toList());
+        if (withAttachment.isEmpty()) {
+            return Set.of();
+        }
+        var updated = jdbcTemplate.batchUpdate(
+                "update file_attachment set hoax_id = ? where id = ? and hoax_id is null",
+                withAttachment.stream()
+                        .map(entry -> new Object[]{entry.id, entry.attachmentId})
+                        .collect(Collectors.toList()));
+        var linked = new HashSet<HoaxLog.Entry>();
+        for (int i = 0; i < updated.length; i++) {
+            var entry = withAttachment.get(i);
+            if (updated[i] == 0) {
+                log.error("Attachment {} of hoax {} is gone, the hoax is saved without it",
+                        entry.attachmentId, entry.id);
+            } else {
+                linked.add(entry);
+            }
+        }
+        return linked;
+    }
+
+    private static List<Long> attachmentIds(List<HoaxLog.Entry> entries) {
+        return entries.stream()
+                .filter(entry -> entry.attachmentId != 0)
+                .map(entry -> entry.attachmentId)
+                .collect(Collectors.toList());
+    }
+
+    // a replayed hoax may have been committed right before the crash that kept it in the log
+    private List<HoaxLog.Entry> skipInserted(List<Pending> batch) {
+        var entries = batch.stream().map(pending -> pending.entry).collect(Collectors.toList());
+        if (batch.stream().noneMatch(pending -> pending.recovered)) {
+            return entries;
+        }
+        var placeholders = String.join(", ", Collections.nCopies(entries.size(), "?"));
+        var inserted = jdbcTemplate.queryForList("select id from hoax where id in (" + placeholders + ")",
+                Long.class, entries.stream().map(entry -> entry.id).toArray());
+        return entries.stream()
+                .filter(entry -> !inserted.contains(entry.id))
+                .collect(Collectors.toList());
+    }
+
+    private static Hoax toHoax(HoaxLog.Entry entry, User author) {
+        var hoax = new Hoax();
+        hoax.setId(entry.id);
+        hoax.setContent(entry.content);
+        hoax.setTimestamp(new Date(entry.timestamp));
+        hoax.setUser(author);
+        return hoax;
+    }
+
+    // lets the writer finish what has been acknowledged before the log is closed
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        if (writer.isAlive()) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        hoaxLog.close();
+    }
+
+    private static class Pending {
+
+        private final HoaxLog.Entry entry;
+        private final boolean recovered;
+
+        private Pending(HoaxLog.Entry entry, boolean recovered) {
+            this.entry = entry;
+            this.recovered = recovered;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package no.javatec.hoaxify.hoax;
+
+import no.javatec.hoaxify.configuration.AppConfiguration;
+import no.javatec.hoaxify.follow.FollowRepository;
+import no.javatec.hoaxify.user.User;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Home timelines: a user's own hoaxes and those of the users they follow, newest first.
+ * <p>
+ * Hoax ids are pushed into the timelines of the author's followers when the hoax is committed (fan-out on write),
+ * so a read is a copy out of a capped, sorted {@code long[]}. Authors with more than {@code fanOutLimit} followers
+ * are not pushed; their latest hoaxes are read from the {@code (user_id, id)} index and merged in. Timelines live
+ * in memory for the most recent readers only, and are loaded from the database on first read. An empty timeline is
+ * registered before the load query runs, so hoaxes committed while it runs are pushed into it and not lost.
+ */
+@Component
+public class HomeTimeline {
+
+    private final FollowRepository followRepository;
+    private final HoaxRepository hoaxRepository;
+    private final int capacity;
+    private final int fanOutLimit;
+    private final Map<Long, Timeline> timelines;
+
+    HomeTimeline(AppConfiguration appConfiguration, FollowRepository followRepository, HoaxRepository hoaxRepository) {
+        this.followRepository = followRepository;
+        this.hoaxRepository = hoaxRepository;
+        var config = appConfiguration.getTimeline();
+        this.capacity = config.getCapacity();
+        this.fanOutLimit = config.getFanOutLimit();
+        var maxTimelines = config.getMaxTimelines();
+        this.timelines = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Timeline> eldest) {
+                return size() > maxTimelines;
+            }
+        };
+    }
+
+    /**
+     * @return ids of the newest hoaxes older than {@code beforeId}, at most {@code size}, newest first
+     */
+    public List<Long> read(User user, long beforeId, int size) {
+        var timeline = getOrLoad(user.getId());
+        var pushed = timeline.before(beforeId, size);
+        if (pushed.length < size && timeline.truncated) {
+            var from = pushed.length == 0 ? beforeId : pushed[pushed.length - 1];
+            var older = followRepository.findTimelineHoaxIds(user.getId(), fanOutLimit, from, size - pushed.length);
+            pushed = concat(pushed, older);
+        }
+        if (timeline.pulledAuthors.isEmpty()) {
+            return toList(pushed);
+        }
+        var pulled = hoaxRepository.findIdsByUserIdInAndIdLessThan(timeline.pulledAuthors, beforeId, PageRequest.of(0, size));
+        return merge(pushed, pulled, size);
+    }
+
+    /**
+     * Pushes the hoaxes into the loaded timelines of the author and the author's followers once committed.
+     */
+    public void fanOut(User author, Collection<Hoax> hoaxes) {
+        afterCommit(() -> {
+            var ids = hoaxes.stream().mapToLong(Hoax::getId).toArray();
+            forAuthorAndFollowers(author.getId(), timeline -> {
+                for (var id : ids) {
+                    timeline.add(id);
+                }
+            });
+        });
+    }
+
+    /**
+     * Takes a deleted hoax out of the loaded timelines of the author and the author's followers once committed.
+     */
+    public void remove(User author, long hoaxId) {
+        afterCommit(() -> forAuthorAndFollowers(author.getId(), timeline -> timeline.remove(hoaxId)));
+    }
+
+    // the timeline is loaded again, with or without the followed user's hoaxes, on the next read
+    public void followsChanged(long userId) {
+        afterCommit(() -> {
+            synchronized (timelines) {
+                timelines.remove(userId);
+            }
+        });
+    }
+
+    // an author crossing the fan-out limit moves between pushed and pulled in their followers' timelines
+    public void fanOutModeChanged(long authorId) {
+        afterCommit(() -> {
+            var followers = followRepository.findFollowerIds(authorId, PageRequest.of(0, fanOutLimit + 1));
+            synchronized (timelines) {
+                followers.forEach(timelines::remove);
+            }
+        });
+    }
+
+    public boolean isFannedOut(int followerCount) {
+        return followerCount <= fanOutLimit;
+    }
+
+    // followers of an author past the fan-out limit read the author's hoaxes from the database instead
+    private void forAuthorAndFollowers(long authorId, Consumer<Timeline> change) {
+        var userIds = new ArrayList<Long>();
+        userIds.add(authorId);
+        var followers = followRepository.findFollowerIds(authorId, PageRequest.of(0, fanOutLimit + 1));
+        if (followers.size() <= fanOutLimit) {
+            userIds.addAll(followers);
+        }
+        for (var userId : userIds) {
+            Timeline timeline;
+            synchronized (timelines) {
+                timeline = timelines.get(userId);
+            }
+            if (timeline != null) {
+                change.accept(timeline);
+            }
+        }
+    }
+
+    private Timeline getOrLoad(long userId) {
+        while (true) {
+            Timeline timeline;
+            var load = false;
+            synchronized (timelines) {
+                timeline = timelines.get(userId);
+                if (timeline == null) {
+                    timeline = new Timeline(capacity);
+                    timelines.put(userId, timeline);
+                    load = true;
+                }
+            }
+            if (!load) {
+                if (timeline.awaitLoaded()) {
+                    return timeline;
+                }
+                // the read loading it failed and took it out; try again
+                continue;
+            }
+            try {
+                var ids = followRepository.findTimelineHoaxIds(userId, fanOutLimit, Long.MAX_VALUE, capacity);
+                var pulledAuthors = followRepository.findFolloweeIdsWithMoreFollowersThan(userId, fanOutLimit);
+                timeline.load(ids, pulledAuthors);
+                return timeline;
+            } catch (RuntimeException e) {
+                synchronized (timelines) {
+                    timelines.remove(userId, timeline);
+                }
+                timeline.loadFailed();
+                throw e;
+            }
+        }
+    }
+
+    private static long[] concat(long[] ids, List<Long> more) {
+        var result = Arrays.copyOf(ids, ids.length + more.size());
+        for (int i = 0; i < more.size(); i++) {
+            result[ids.length + i] = more.get(i);
+        }
+        return result;
+    }
+
+    private static List<Long> merge(long[] pushed, List<Long> pulled, int size) {
+        var result = new ArrayList<Long>(size);
+        int i = 0;
+        int j = 0;
+        while (result.size() < size && (i < pushed.length || j < pulled.size())) {
+            if (j == pulled.size() || (i < pushed.length && pushed[i] > pulled.get(j))) {
+                result.add(pushed[i++]);
+            } else if (i < pushed.length && pushed[i] == pulled.get(j)) {
+                result.add(pushed[i++]);
+                j++;
+            } else {
+                result.add(pulled.get(j++));
+            }
+        }
+        return result;
+    }
+
+    private static List<Long> toList(long[] ids) {
+        var result = new ArrayList<Long>(ids.length);
+        for (var id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    /**
+     * Hoax ids, newest first, capped at capacity. Commits can arrive slightly out of id order, so ids are inserted
+     * at their sorted position, which is almost always the front. Until it is loaded the timeline only holds what was
+     * pushed meanwhile, and remembers what was removed, so the load cannot bring it back.
+     */
+    private static class Timeline {
+
+        private long[] ids;
+        private volatile List<Long> pulledAuthors = List.of();
+        private int size;
+        // older hoaxes exist than the ones held here
+        private volatile boolean truncated;
+        private boolean loaded;
+        private boolean failed;
+        private final Set<Long> removedWhileLoading = new HashSet<>();
+
+        private Timeline(int capacity) {
+            this.ids = new long[capacity];
+        }
+
+        private synchronized void load(List<Long> newestFirst, List<Long> pulledAuthors) {
+            var merged = new long[ids.length];
+            var count = 0;
+            var i = 0;
+            var j = 0;
+            while (count < merged.length && (i < size || j < newestFirst.size())) {
+                long id;
+                if (j == newestFirst.size() || (i < size && ids[i] >= newestFirst.get(j))) {
+                    id = ids[i++];
+                    if (j < newestFirst.size() && newestFirst.get(j) == id) {
+                        j++;
+                    }
+                } else {
+                    id = newestFirst.get(j++);
+                    if (removedWhileLoading.contains(id)) {
+                        continue;
+                    }
+                }
+                merged[count++] = id;
+            }
+            this.truncated = truncated || newestFirst.size() == ids.length || i < size || j < newestFirst.size();
+            this.ids = merged;
+            this.size = count;
+            this.pulledAuthors = pulledAuthors;
+            this.loaded = true;
+            removedWhileLoading.clear();
+            notifyAll();
+        }
+
+        private synchronized void loadFailed() {
+            failed = true;
+            notifyAll();
+        }
+
+        // false if the load failed
+        private synchronized boolean awaitLoaded() {
+            var interrupted = false;
+            while (!loaded && !failed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return loaded;
+        }
+
+        private synchronized void add(long id) {
+            var position = 0;
+            while (position < size && ids[position] > id) {
+                position++;
+            }
+            if (position < size && ids[position] == id) {
+                return;
+            }
+            if (position == ids.length) {
+                truncated = true;
+                return;
+            }
+            if (size == ids.length) {
+                size--;
+                truncated = true;
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        private synchronized void remove(long id) {
+            if (!loaded) {
+                removedWhileLoading.add(id);
+            }
+            for (int position = 0; position < size; position++) {
+                if (ids[position] == id) {
+                    System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        private synchronized long[] before(long beforeId, int count) {
+            var low = 0;
+            var high = size;
+            while (low < high) {
+                var mid = (low + high) >>> 1;
+                if (ids[mid] >= beforeId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return Arrays.copyOfRange(ids, low, Math.min(size, low + count));
+        }
+    }
+}
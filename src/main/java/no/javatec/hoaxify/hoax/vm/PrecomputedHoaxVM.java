@@ -0,0 +1,50 @@
+package no.javatec.hoaxify.hoax.vm;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import no.javatec.hoaxify.hoax.Hoax;
+
+import java.io.IOException;
+
+/**
+ * A {@link HoaxVM} that writes its JSON from a pre-encoded fragment instead of serializing its fields.
+ * Generators for formats other than JSON fall back to serializing a plain {@link HoaxVM}.
+ */
+public class PrecomputedHoaxVM extends HoaxVM implements JsonSerializable {
+
+    private final SerializableString json;
+
+    public PrecomputedHoaxVM(Hoax hoax, SerializableString json) {
+        super(hoax);
+        this.json = json;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        if (gen instanceof JsonGeneratorImpl) {
+            gen.writeRawValue(json);
+        } else {
+            serializers.defaultSerializeValue(toHoaxVM(), gen);
+        }
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        serializers.defaultSerializeValue(toHoaxVM(), gen);
+    }
+
+    private HoaxVM toHoaxVM() {
+        var hoaxVM = new HoaxVM();
+        hoaxVM.setId(getId());
+        hoaxVM.setContent(getContent());
+        hoaxVM.setDate(getDate());
+        hoaxVM.setUser(getUser());
+        hoaxVM.setAttachment(getAttachment());
+        return hoaxVM;
+    }
+}
@@ -0,0 +1,118 @@
+package no.javatec.hoaxify.shared;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory versions of the feed and of each user's profile and hoaxes, used as weak ETags and Last-Modified values
+ * for conditional GETs, so an unchanged poll is answered without a query. Versions start over from the boot time on
+ * every start, which makes clients fetch once after a restart. This only holds for a single instance.
+ * <p>
+ * JSON and CBOR representations share a version, so responses validated with it carry {@code Vary: Accept}.
+ */
+@Component
+public class ContentVersions {
+
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final AtomicLong counter = new AtomicLong();
+    private final Version initial = new Version(epoch, 0, System.currentTimeMillis());
+    private final Map<String, Version> users = new ConcurrentHashMap<>();
+    private volatile Version feed = initial;
+
+    public Version feed() {
+        return feed;
+    }
+
+    /**
+     * @return the version of a user seen to exist since the start, empty for any other name, so a request for an
+     * unknown user is never answered as not modified
+     */
+    public Optional<Version> user(String username) {
+        return Optional.ofNullable(users.get(username));
+    }
+
+    /**
+     * Records that the user was just read from the database, for a user without a version yet.
+     *
+     * @return the version the data read is at; a change committed meanwhile is already newer
+     */
+    public Version userFound(String username) {
+        users.putIfAbsent(username, initial);
+        return initial;
+    }
+
+    /**
+     * Like {@link WebRequest#checkNotModified(String, long)}, and also marks the response as varying by
+     * {@code Accept}.
+     */
+    public static boolean checkNotModified(ServletWebRequest webRequest, Version version) {
+        var response = webRequest.getResponse();
+        if (response != null && !response.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT)) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        return webRequest.checkNotModified(version.getETag(), version.getLastModified());
+    }
+
+    public void hoaxChanged(String username, long timestamp) {
+        afterCommit(() -> {
+            var version = next(timestamp);
+            users.put(username, version);
+            feed = version;
+        });
+    }
+
+    // the feed embeds the author's user data, so it changes too
+    public void userChanged(String username) {
+        afterCommit(() -> {
+            var version = next(System.currentTimeMillis());
+            users.put(username, version);
+            feed = version;
+        });
+    }
+
+    private Version next(long lastModified) {
+        return new Version(epoch, counter.incrementAndGet(), lastModified);
+    }
+
+    // a reader must not see the new version before it can see the new data
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    public static class Version {
+
+        private final String eTag;
+        private final long lastModified;
+
+        Version(String epoch, long counter, long lastModified) {
+            this.eTag = "W/\"" + epoch + "-" + counter + "\"";
+            this.lastModified = lastModified;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
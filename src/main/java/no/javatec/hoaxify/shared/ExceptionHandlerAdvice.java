@@ -1,7 +1,10 @@
 package no.javatec.hoaxify.shared;
 
 import no.javatec.hoaxify.error.ApiError;
+import no.javatec.hoaxify.error.TooManyRequestsException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -9,6 +12,8 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
@@ -31,4 +36,37 @@ public class ExceptionHandlerAdvice {
                                 // mergeFunction handling multiple errors for a field
                                 (firstMessage, secondMessage) -> firstMessage)));
     }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    ApiError handleConstraintViolationException(ConstraintViolationException exception, HttpServletRequest request) {
+
+        return new ApiError(
+                HttpStatus.BAD_REQUEST.value(),
+                ERROR_MSG,
+                request.getServletPath(),
+                exception.getConstraintViolations().stream()
+                        .collect(Collectors.toMap(
+                                ExceptionHandlerAdvice::parameterPath,
+                                ConstraintViolation::getMessage,
+                                (firstMessage, secondMessage) -> firstMessage)));
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    ResponseEntity<ApiError> handleTooManyRequestsException(TooManyRequestsException exception,
+                                                            HttpServletRequest request) {
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(exception.getRetryAfterSeconds()))
+                .body(new ApiError(
+                        HttpStatus.TOO_MANY_REQUESTS.value(),
+                        exception.getMessage(),
+                        request.getServletPath()));
+    }
+
+    // strips the method name, e.g. "createHoaxes.hoaxes[1].content" becomes "hoaxes[1].content"
+    private static String parameterPath(ConstraintViolation<?> violation) {
+        var path = violation.getPropertyPath().toString();
+        return path.substring(path.indexOf('.') + 1);
+    }
 }
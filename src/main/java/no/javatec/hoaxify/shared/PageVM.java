@@ -0,0 +1,35 @@
+package no.javatec.hoaxify.shared;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+/**
+ * The page fields the clients use, without the pageable, sort and empty properties {@code PageImpl} adds.
+ */
+@Data
+@NoArgsConstructor
+public class PageVM<T> {
+
+    private List<T> content;
+    private int number;
+    private int size;
+    private int numberOfElements;
+    private long totalElements;
+    private int totalPages;
+    private boolean first;
+    private boolean last;
+
+    public PageVM(Page<T> page) {
+        this.content = page.getContent();
+        this.number = page.getNumber();
+        this.size = page.getSize();
+        this.numberOfElements = page.getNumberOfElements();
+        this.totalElements = page.getTotalElements();
+        this.totalPages = page.getTotalPages();
+        this.first = page.isFirst();
+        this.last = page.isLast();
+    }
+}
@@ -12,6 +12,7 @@ import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 @Data
@@ -42,6 +43,20 @@ public class User implements UserDetails {
     @OneToMany(mappedBy = "user")
     private List<Hoax> hoaxes;
 
+    @Version
+    private long version;
+
+    // maintained by bulk updates next to the hoax changes, never written from the entity
+    @Column(insertable = false, updatable = false)
+    private int hoaxCount;
+
+    @Column(insertable = false, updatable = false)
+    private int attachmentCount;
+
+    @Column(insertable = false, updatable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastHoaxAt;
+
     @JsonIgnore
     @Override
     @Transient
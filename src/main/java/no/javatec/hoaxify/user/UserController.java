@@ -1,23 +1,29 @@
 package no.javatec.hoaxify.user;
 
 import lombok.RequiredArgsConstructor;
+import no.javatec.hoaxify.shared.ContentVersions;
 import no.javatec.hoaxify.shared.GenericResponse;
+import no.javatec.hoaxify.shared.PageVM;
 import no.javatec.hoaxify.user.vm.UserUpdateVM;
 import no.javatec.hoaxify.user.vm.UserVM;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.validation.Valid;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/1.0")
 @RequiredArgsConstructor
 public class UserController {
 
+    static final int MAX_SUGGESTIONS = 20;
+
     private final UserService userService;
+    private final ContentVersions contentVersions;
 
     @PostMapping("/users")
     GenericResponse createUser(@Valid @RequestBody User user) {
@@ -27,19 +33,34 @@ public class UserController {
 
     // can be using @PageableDefault(size = 10) instead of global
     @GetMapping("/users")
-    Page<UserVM> getUsers(@AuthenticationPrincipal User user, Pageable pageable) {
-        return userService.getUsers(user, pageable).map(UserVM::new);
+    PageVM<UserVM> getUsers(@AuthenticationPrincipal User user, Pageable pageable) {
+        return new PageVM<>(userService.getUsers(user, pageable).map(UserVM::withStats));
+    }
+
+    // typeahead; answered from memory, so a lookup per keystroke is fine
+    @GetMapping(value = "/users", params = "q")
+    List<UserVM> suggestUsers(@RequestParam("q") String prefix,
+                              @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return userService.suggestUsers(prefix, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
     }
 
     @GetMapping("/users/{username}")
-    UserVM getUserByName(@PathVariable String username) {
+    UserVM getUserByName(@PathVariable String username, ServletWebRequest webRequest) {
+        var version = contentVersions.user(username);
+        if (version.isPresent() && ContentVersions.checkNotModified(webRequest, version.get())) {
+            return null;
+        }
         var user = userService.getByUsername(username);
-        return new UserVM(user);
+        if (version.isEmpty() && ContentVersions.checkNotModified(webRequest, contentVersions.userFound(username))) {
+            return null;
+        }
+        return UserVM.withStats(user);
     }
 
     @PutMapping("/users/{id:[0-9]+}")
     @PreAuthorize("#id == principal.id")
-    UserVM updateUser(@PathVariable long id, @Valid @RequestBody(required = false) UserUpdateVM userUpdate) {
-        return new UserVM(userService.update(id, userUpdate));
+    UserVM updateUser(@PathVariable long id, @Valid @RequestBody(required = false) UserUpdateVM userUpdate,
+                      @AuthenticationPrincipal User loggedInUser) {
+        return new UserVM(userService.update(loggedInUser, userUpdate));
     }
 }
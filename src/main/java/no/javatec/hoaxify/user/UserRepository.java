@@ -3,8 +3,75 @@ package no.javatec.hoaxify.user;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     User findByUsername(String username);
     Page<User> findByUsernameNot(String username, Pageable page);
+    List<UserSummary> findByIdGreaterThanOrderById(long id, Pageable page);
+
+    // single statement; only applies when nobody else has updated the user since the given version was read
+    @Transactional
+    @Modifying
+    @Query("update User u set u.displayName = :displayName, u.image = :image, u.version = u.version + 1 "
+            + "where u.id = :id and u.version = :version")
+    int updateProfile(long id, long version, String displayName, String image);
+
+    // read past the persistence context, which may hold the version that just lost
+    @Query("select u.version as version, u.image as image from User u where u.id = :id")
+    Optional<ProfileVersion> findProfileVersion(long id);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password where u.id = :id")
+    int updatePassword(long id, String password);
+
+    @Modifying
+    @Query("update User u set u.hoaxCount = u.hoaxCount + :hoaxes, u.attachmentCount = u.attachmentCount + :attachments, "
+            + "u.lastHoaxAt = :timestamp where u.id = :id")
+    int addHoaxes(long id, int hoaxes, int attachments, Date timestamp);
+
+    @Modifying
+    @Query(value = "update user set hoax_count = hoax_count - 1, attachment_count = attachment_count - :attachments, "
+            + "last_hoax_at = (select h.timestamp from hoax h where h.user_id = :id order by h.id desc limit 1) "
+            + "where id = :id", nativeQuery = true)
+    int removeHoax(long id, int attachments);
+
+    @Query("select u.id from User u where u.id > :id order by u.id")
+    List<Long> findIdsAfter(long id, Pageable pageable);
+
+    @Query(value = "select u.id as id, u.username as username from user u where u.id between :fromId and :toId and "
+            + DRIFTED, nativeQuery = true)
+    List<DriftedUser> findDrifted(long fromId, long toId);
+
+    // recounts the users in the id range and rewrites only those that have drifted
+    @Modifying
+    @Query(value = "update user u set hoax_count = " + HOAX_COUNT + ", attachment_count = " + ATTACHMENT_COUNT
+            + ", last_hoax_at = " + LAST_HOAX_AT + " where u.id between :fromId and :toId and " + DRIFTED,
+            nativeQuery = true)
+    int reconcileStats(long fromId, long toId);
+
+    String HOAX_COUNT = "(select count(*) from hoax h where h.user_id = u.id)";
+    String ATTACHMENT_COUNT = "(select count(*) from file_attachment f join hoax h on h.id = f.hoax_id where h.user_id = u.id)";
+    String LAST_HOAX_AT = "(select h.timestamp from hoax h where h.user_id = u.id order by h.id desc limit 1)";
+    String DRIFTED = "(hoax_count <> " + HOAX_COUNT + " or attachment_count <> " + ATTACHMENT_COUNT
+            + " or last_hoax_at is distinct from " + LAST_HOAX_AT + ")";
+
+    interface ProfileVersion {
+        long getVersion();
+
+        String getImage();
+    }
+
+    interface DriftedUser {
+        long getId();
+
+        String getUsername();
+    }
 }
@@ -1,28 +1,48 @@
 package no.javatec.hoaxify.user;
 
 import lombok.RequiredArgsConstructor;
+import no.javatec.hoaxify.error.ConflictException;
 import no.javatec.hoaxify.error.NotFoundException;
 import no.javatec.hoaxify.file.FileService;
+import no.javatec.hoaxify.hoax.HoaxJsonCache;
+import no.javatec.hoaxify.shared.ContentVersions;
 import no.javatec.hoaxify.user.vm.UserUpdateVM;
+import no.javatec.hoaxify.user.vm.UserVM;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.IOException;
+import java.util.Date;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
+    static final int MAX_UPDATE_ATTEMPTS = 3;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final FileService fileService;
+    private final HoaxJsonCache hoaxJsonCache;
+    private final ContentVersions contentVersions;
+    private final UserTypeahead userTypeahead;
 
     public User save(User user) {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        var saved = userRepository.save(user);
+        contentVersions.userChanged(saved.getUsername());
+        userTypeahead.put(saved);
+        return saved;
+    }
+
+    public List<UserVM> suggestUsers(String prefix, int limit) {
+        return userTypeahead.suggest(prefix, limit);
     }
 
     public Page<User> getUsers(User loggedInUser, Pageable pageable) {
@@ -40,20 +60,92 @@ public class UserService {
         return user;
     }
 
+    /**
+     * Adds to the profile stats in the transaction that saves the hoaxes, so the counts never need a count query.
+     */
+    public void hoaxesPosted(long userId, int hoaxes, int attachments, Date timestamp) {
+        userRepository.addHoaxes(userId, hoaxes, attachments, timestamp);
+    }
+
+    public void hoaxDeleted(User user, int attachments) {
+        userRepository.removeHoax(user.getId(), attachments);
+    }
+
     @Transactional
     public User update(long id, UserUpdateVM userUpdate) {
-        var inDb = userRepository.getOne(id);
-        inDb.setDisplayName(userUpdate.getDisplayName());
+        return update(getById(id), userUpdate);
+    }
 
+    /**
+     * Updates the profile with one conditional statement against the version of {@code current}, normally the
+     * authenticated user loaded for this request. If another update got there first, the version is read again and
+     * the update retried, so the image deleted is always the one this update replaced.
+     *
+     * @throws ConflictException if the profile keeps changing underneath, after {@value #MAX_UPDATE_ATTEMPTS} attempts
+     */
+    @Transactional
+    public User update(User current, UserUpdateVM userUpdate) {
+        String savedImageName = null;
         if (userUpdate.getImage() != null) {
             try {
-                var savedImageName = fileService.saveProfileImage(userUpdate.getImage());
-                fileService.deleteProfileImage(inDb.getImage());
-                inDb.setImage(savedImageName);
+                savedImageName = fileService.saveProfileImage(userUpdate.getImage());
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
-        return userRepository.save(inDb);
+
+        var version = current.getVersion();
+        var previousImage = current.getImage();
+        var image = savedImageName != null ? savedImageName : previousImage;
+        var attempts = 1;
+        while (userRepository.updateProfile(current.getId(), version, userUpdate.getDisplayName(), image) == 0) {
+            if (attempts++ == MAX_UPDATE_ATTEMPTS) {
+                if (savedImageName != null) {
+                    fileService.deleteProfileImage(savedImageName);
+                }
+                throw new ConflictException("Profile was changed by another request, try again");
+            }
+            var inDb = userRepository.findProfileVersion(current.getId())
+                    .orElseThrow(() -> new NotFoundException("User " + current.getId() + " not found"));
+            version = inDb.getVersion();
+            previousImage = inDb.getImage();
+            image = savedImageName != null ? savedImageName : previousImage;
+        }
+        if (savedImageName != null) {
+            deleteImageOnCompletion(savedImageName, previousImage);
+        }
+        hoaxJsonCache.evictUser(current.getId());
+        contentVersions.userChanged(current.getUsername());
+
+        var updated = new User();
+        updated.setId(current.getId());
+        updated.setUsername(current.getUsername());
+        updated.setDisplayName(userUpdate.getDisplayName());
+        updated.setImage(image);
+        updated.setVersion(version + 1);
+        userTypeahead.put(updated);
+        return updated;
+    }
+
+    // the replaced image is only unused once the update has committed, and the new one once it has rolled back
+    private void deleteImageOnCompletion(String newImage, String replacedImage) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            fileService.deleteProfileImage(replacedImage);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    fileService.deleteProfileImage(replacedImage);
+                } else if (status == STATUS_ROLLED_BACK) {
+                    fileService.deleteProfileImage(newImage);
+                }
+            }
+        });
+    }
+
+    private User getById(long id) {
+        return userRepository.findById(id).orElseThrow(() -> new NotFoundException("User " + id + " not found"));
     }
 }
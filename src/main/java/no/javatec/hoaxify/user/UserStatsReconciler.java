@@ -0,0 +1,67 @@
+package no.javatec.hoaxify.user;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.javatec.hoaxify.hoax.HoaxJsonCache;
+import no.javatec.hoaxify.shared.ContentVersions;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Recounts the profile stats from the hoax and attachment tables and repairs users whose counters have drifted,
+ * e.g. after hoaxes were changed outside {@code HoaxService}. Users are walked in id order, one short transaction
+ * per batch, so the job never holds locks on more than a batch of users. Repaired users get a new content version,
+ * so clients holding the old one are not answered 304 with the old stats.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserStatsReconciler {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final ContentVersions contentVersions;
+    private final HoaxJsonCache hoaxJsonCache;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * @return the number of users whose stats were repaired
+     */
+    @Scheduled(cron = "${hoaxify.user-stats-reconcile-cron:0 30 3 * * *}")
+    public int reconcile() {
+        var repaired = 0;
+        long lastId = -1;
+        List<Long> batch;
+        do {
+            batch = userRepository.findIdsAfter(lastId, PageRequest.of(0, BATCH_SIZE));
+            if (batch.isEmpty()) {
+                break;
+            }
+            lastId = batch.get(batch.size() - 1);
+            var fromId = batch.get(0);
+            var toId = lastId;
+            var drifted = transactionTemplate.execute(status -> {
+                var users = userRepository.findDrifted(fromId, toId);
+                if (!users.isEmpty()) {
+                    userRepository.reconcileStats(fromId, toId);
+                }
+                return users;
+            });
+            for (var user : Objects.requireNonNull(drifted)) {
+                hoaxJsonCache.evictUser(user.getId());
+                contentVersions.userChanged(user.getUsername());
+            }
+            repaired += drifted.size();
+        } while (batch.size() == BATCH_SIZE);
+        if (repaired > 0) {
+            log.warn("Repaired drifted profile stats of {} users", repaired);
+        }
+        return repaired;
+    }
+}
@@ -0,0 +1,12 @@
+package no.javatec.hoaxify.user;
+
+// the public part of a user, read without the password hash
+interface UserSummary {
+    long getId();
+
+    String getUsername();
+
+    String getDisplayName();
+
+    String getImage();
+}
@@ -0,0 +1,118 @@
+package no.javatec.hoaxify.user;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import no.javatec.hoaxify.user.vm.UserVM;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Prefix lookup of users by username and display name, answered from memory. Every user is kept under two
+ * lower-cased keys in a sorted map, so the users matching a prefix are one contiguous range of it and the first k
+ * are found in O(log n + k). Reads take no lock; the map is loaded at startup and follows user saves and updates.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserTypeahead {
+
+    private static final char SEPARATOR = '\u0000';
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final NavigableMap<String, UserVM> byKey = new ConcurrentSkipListMap<>();
+    private final Map<String, UserVM> byUsername = new ConcurrentHashMap<>();
+
+    /**
+     * @return at most {@code limit} users whose username or display name starts with the prefix, ignoring case,
+     * in alphabetical order of the matching name
+     */
+    public List<UserVM> suggest(String prefix, int limit) {
+        var normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        var matches = new LinkedHashMap<String, UserVM>();
+        for (var user : byKey.subMap(normalized, true, normalized + Character.MAX_VALUE, false).values()) {
+            matches.putIfAbsent(user.getUsername(), user);
+            if (matches.size() == limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    public void put(User user) {
+        var entry = new UserVM(user);
+        afterCommit(() -> putNow(entry));
+    }
+
+    public synchronized void rebuild() {
+        byKey.clear();
+        byUsername.clear();
+        long lastId = -1;
+        List<UserSummary> batch;
+        do {
+            batch = userRepository.findByIdGreaterThanOrderById(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (var user : batch) {
+                var entry = new UserVM();
+                entry.setId(user.getId());
+                entry.setUsername(user.getUsername());
+                entry.setDisplayName(user.getDisplayName());
+                entry.setImage(user.getImage());
+                putNow(entry);
+                lastId = user.getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        log.info("User typeahead loaded with {} users", byUsername.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    private synchronized void putNow(UserVM user) {
+        var previous = byUsername.put(user.getUsername(), user);
+        if (previous != null) {
+            byKey.remove(key(previous.getDisplayName(), previous.getUsername()));
+        }
+        byKey.put(key(user.getUsername(), user.getUsername()), user);
+        byKey.put(key(user.getDisplayName(), user.getUsername()), user);
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    // the username suffix keeps users with the same display name apart
+    private static String key(String name, String username) {
+        return normalize(name) + SEPARATOR + username;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,9 +1,12 @@
 package no.javatec.hoaxify.user.vm;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import no.javatec.hoaxify.user.User;
 
+import java.util.Date;
+
 @Data
 @NoArgsConstructor
 public class UserVM {
@@ -11,6 +14,13 @@ public class UserVM {
     private String username;
     private String displayName;
     private String image;
+    // profile stats, only on the profile endpoints and left out of the user nested in hoaxes
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer hoaxCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer attachmentCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Date lastHoaxAt;
 
     public UserVM(User user) {
         this.id = user.getId();
@@ -18,4 +28,12 @@ public class UserVM {
         this.displayName = user.getDisplayName();
         this.image = user.getImage();
     }
+
+    public static UserVM withStats(User user) {
+        var vm = new UserVM(user);
+        vm.hoaxCount = user.getHoaxCount();
+        vm.attachmentCount = user.getAttachmentCount();
+        vm.lastHoaxAt = user.getLastHoaxAt();
+        return vm;
+    }
 }
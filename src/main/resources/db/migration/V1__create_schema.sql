@@ -0,0 +1,31 @@
+create sequence hibernate_sequence start with 1 increment by 1 cache 50;
+
+create table user (
+    id           bigint not null,
+    display_name varchar(255),
+    image        varchar(255),
+    password     varchar(255),
+    username     varchar(255),
+    primary key (id)
+);
+
+create table hoax (
+    id        bigint not null,
+    content   varchar(5000),
+    timestamp timestamp,
+    user_id   bigint,
+    primary key (id)
+);
+
+create table file_attachment (
+    id        bigint not null,
+    date      timestamp,
+    file_type varchar(255),
+    name      varchar(255),
+    hoax_id   bigint,
+    primary key (id)
+);
+
+alter table user add constraint UK_sb8bbouer5wak8vyiiy4pf2bx unique (username);
+alter table hoax add constraint FKprlu9i28mxmbs2bnvd7dadfnt foreign key (user_id) references user;
+alter table file_attachment add constraint FKm4s6ke3jlye084brffy7ngs7t foreign key (hoax_id) references hoax;
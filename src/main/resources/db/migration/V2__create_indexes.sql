@@ -0,0 +1,2 @@
+create index idx_hoax_user_id_id on hoax (user_id, id);
+create index idx_file_attachment_hoax_id_date on file_attachment (hoax_id, date);
@@ -0,0 +1 @@
+alter table file_attachment add column status varchar(255) default 'READY' not null;
@@ -0,0 +1 @@
+alter table user add column version bigint default 0 not null;
@@ -0,0 +1,12 @@
+create table follow (
+    follower_id bigint not null,
+    followee_id bigint not null,
+    created     timestamp,
+    primary key (follower_id, followee_id)
+);
+
+alter table follow add constraint fk_follow_follower foreign key (follower_id) references user on delete cascade;
+alter table follow add constraint fk_follow_followee foreign key (followee_id) references user on delete cascade;
+create index idx_follow_followee_id_follower_id on follow (followee_id, follower_id);
+
+alter table user add column follower_count int default 0 not null;
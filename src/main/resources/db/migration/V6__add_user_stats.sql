@@ -0,0 +1,8 @@
+alter table user add column hoax_count int default 0 not null;
+alter table user add column attachment_count int default 0 not null;
+alter table user add column last_hoax_at timestamp;
+
+update user u set
+    hoax_count       = (select count(*) from hoax h where h.user_id = u.id),
+    attachment_count = (select count(*) from file_attachment f join hoax h on h.id = f.hoax_id where h.user_id = u.id),
+    last_hoax_at     = (select h.timestamp from hoax h where h.user_id = u.id order by h.id desc limit 1);
@@ -0,0 +1,2 @@
+alter table file_attachment add column user_id bigint;
+alter table file_attachment add constraint fk_file_attachment_user foreign key (user_id) references user (id) on delete set null;
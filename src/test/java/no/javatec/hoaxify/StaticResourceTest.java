@@ -1,6 +1,7 @@
 package no.javatec.hoaxify;
 
 import no.javatec.hoaxify.configuration.AppConfiguration;
+import no.javatec.hoaxify.file.storage.DirectorySharding;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -73,6 +74,19 @@ public class StaticResourceTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    public void getStaticFile_whenImageExistsInShardedAttachmentsFolder_receiveOk() throws Exception {
+        var source = new ClassPathResource("profile.png").getFile();
+
+        var fileName = "3f9a0c1d2e";
+        var target = new File(appConfiguration.getFullAttachmentsPath() + "/" + DirectorySharding.shardedPath(fileName));
+        FileUtils.copyFile(source, target);
+
+        mockMvc.perform(
+                get("/images/" + appConfiguration.getAttachmentsFolder() + "/" + fileName))
+                .andExpect(status().isOk());
+    }
+
     @Test
     public void getStaticFile_whenImageDoesNotExists_receiveNotFound() throws Exception {
         mockMvc.perform(
@@ -0,0 +1,30 @@
+package no.javatec.hoaxify.configuration;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BCryptCalibrationTest {
+
+    private static final long ONE_MS = Duration.ofMillis(1).toNanos();
+
+    @Test
+    public void strengthFor_addsOneCostStepPerDoublingOfTargetOverProbe() {
+        assertThat(BCryptCalibration.strengthFor(Duration.ofMillis(256), 4 * ONE_MS)).isEqualTo(14);
+        assertThat(BCryptCalibration.strengthFor(Duration.ofMillis(512), 4 * ONE_MS)).isEqualTo(15);
+    }
+
+    @Test
+    public void strengthFor_staysWithinBounds() {
+        assertThat(BCryptCalibration.strengthFor(Duration.ofMillis(1), 4 * ONE_MS)).isEqualTo(BCryptCalibration.MIN_STRENGTH);
+        assertThat(BCryptCalibration.strengthFor(Duration.ofSeconds(60), ONE_MS)).isEqualTo(BCryptCalibration.MAX_STRENGTH);
+    }
+
+    @Test
+    public void strengthFor_measuredOnThisHost_isWithinBounds() {
+        assertThat(BCryptCalibration.strengthFor(Duration.ofMillis(250)))
+                .isBetween(BCryptCalibration.MIN_STRENGTH, BCryptCalibration.MAX_STRENGTH);
+    }
+}
@@ -0,0 +1,37 @@
+package no.javatec.hoaxify.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HikariPoolSizerTest {
+
+    @Test
+    public void poolSize_whenFourCoresAvailable_returnsNine() {
+        var poolSizer = new HikariPoolSizer(false, 4);
+        assertThat(poolSizer.poolSize()).isEqualTo(9);
+    }
+
+    @Test
+    public void postProcessAfterInitialization_whenPoolSizeNotConfigured_sizesPoolFromCores() {
+        var dataSource = new HikariDataSource();
+
+        new HikariPoolSizer(false, 4).postProcessAfterInitialization(dataSource, "dataSource");
+
+        assertThat(dataSource.getMaximumPoolSize()).isEqualTo(9);
+        assertThat(dataSource.getMinimumIdle()).isEqualTo(9);
+    }
+
+    @Test
+    public void postProcessAfterInitialization_whenPoolSizeConfigured_keepsConfiguredPoolSize() {
+        var environment = new MockEnvironment().withProperty(HikariPoolSizer.MAXIMUM_POOL_SIZE, "3");
+        var dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(3);
+
+        new HikariPoolSizer(environment).postProcessAfterInitialization(dataSource, "dataSource");
+
+        assertThat(dataSource.getMaximumPoolSize()).isEqualTo(3);
+    }
+}
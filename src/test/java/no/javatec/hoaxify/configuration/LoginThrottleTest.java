@@ -0,0 +1,138 @@
+package no.javatec.hoaxify.configuration;
+
+import no.javatec.hoaxify.user.UserRepository;
+import no.javatec.hoaxify.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+
+import static no.javatec.hoaxify.TestUtils.TEST_PASSWORD;
+import static no.javatec.hoaxify.TestUtils.createValidUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "hoaxify.login-throttle.free-attempts=2",
+        "hoaxify.login-throttle.base-delay=10s"
+})
+@ActiveProfiles("test")
+public class LoginThrottleTest {
+
+    private static final String API_1_0_LOGIN = "/api/1.0/login";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @BeforeEach
+    public void cleanup() {
+        userRepository.deleteAll();
+    }
+
+    // the client address is blocked along with the username, so everything over HTTP is one test
+    @Test
+    public void postLogin_afterFreeAttemptsFailed_receiveTooManyRequestsEvenWithCorrectPassword() {
+        var user = userService.save(createValidUser("user1"));
+        login(user.getUsername(), "wrong").expectStatus().isUnauthorized();
+        login(user.getUsername(), "wrong").expectStatus().isUnauthorized();
+
+        login(user.getUsername(), "wrong")
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "10");
+        login(user.getUsername(), TEST_PASSWORD)
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    public void authenticate_whenBlocked_doesNotLoadUserOrHashPassword() {
+        var config = new AppConfiguration();
+        config.getLoginThrottle().setFreeAttempts(1);
+        config.getLoginThrottle().setBaseDelay(Duration.ofMinutes(1));
+        var userDetailsService = Mockito.mock(UserDetailsService.class);
+        var passwordEncoder = Mockito.mock(PasswordEncoder.class);
+        var provider = new ThrottlingAuthenticationProvider(new LoginThrottle(config));
+        provider.setUserDetailsService(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        Mockito.when(userDetailsService.loadUserByUsername("user1")).thenReturn(createValidUser("user1"));
+
+        var attempt = new UsernamePasswordAuthenticationToken("user1", "wrong");
+        assertThatThrownBy(() -> provider.authenticate(attempt)).isInstanceOf(BadCredentialsException.class);
+        Mockito.clearInvocations(userDetailsService, passwordEncoder);
+
+        assertThatThrownBy(() -> provider.authenticate(attempt)).isInstanceOf(LoginThrottledException.class);
+        Mockito.verifyNoInteractions(userDetailsService, passwordEncoder);
+    }
+
+    @Test
+    public void failed_backoffDoublesPerFailureUpToMaxDelay() {
+        var config = new AppConfiguration();
+        config.getLoginThrottle().setFreeAttempts(1);
+        config.getLoginThrottle().setBaseDelay(Duration.ofNanos(100));
+        config.getLoginThrottle().setMaxDelay(Duration.ofNanos(300));
+        var throttle = new LoginThrottle(config);
+
+        throttle.failed("user1", "10.0.0.1", 0);
+        assertThat(throttle.blockedFor("user1", "10.0.0.1", 0)).isEqualTo(100);
+        throttle.failed("user1", "10.0.0.1", 0);
+        assertThat(throttle.blockedFor("user1", "10.0.0.1", 0)).isEqualTo(200);
+        throttle.failed("user1", "10.0.0.1", 0);
+        assertThat(throttle.blockedFor("user2", "10.0.0.1", 0)).isEqualTo(300);
+
+        throttle.succeeded("user1", "10.0.0.1");
+        assertThat(throttle.blockedFor("user1", "10.0.0.2", 0)).isZero();
+    }
+
+    @Test
+    public void failed_fromOtherAddress_doesNotBlockUser() {
+        var config = new AppConfiguration();
+        config.getLoginThrottle().setFreeAttempts(1);
+        var throttle = new LoginThrottle(config);
+
+        throttle.failed("user1", "10.0.0.1", 0);
+        throttle.failed("user1", "10.0.0.1", 0);
+
+        assertThat(throttle.blockedFor("user1", "10.0.0.1", 0)).isPositive();
+        assertThat(throttle.blockedFor("user1", "10.0.0.2", 0)).isZero();
+    }
+
+    @Test
+    public void failed_whenFullOfUnexpiredKeys_newKeysAreNotTracked() {
+        var config = new AppConfiguration();
+        config.getLoginThrottle().setFreeAttempts(1);
+        config.getLoginThrottle().setMaxEntries(2);
+        var throttle = new LoginThrottle(config);
+        var now = System.nanoTime();
+
+        throttle.failed("user1", "10.0.0.1", now);
+        throttle.failed("user2", "10.0.0.2", now);
+
+        assertThat(throttle.blockedFor("user1", "10.0.0.1", now)).isPositive();
+        assertThat(throttle.blockedFor("user2", "10.0.0.2", now)).isZero();
+    }
+
+    private WebTestClient.ResponseSpec login(String username, String password) {
+        return webTestClient.post()
+                .uri(API_1_0_LOGIN)
+                .headers(httpHeaders -> httpHeaders.setBasicAuth(username, password))
+                .exchange();
+    }
+}
@@ -0,0 +1,75 @@
+package no.javatec.hoaxify.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.javatec.hoaxify.error.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class OffloadingPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final BlockingEncoder delegate = new BlockingEncoder();
+    private final OffloadingPasswordEncoder encoder = new OffloadingPasswordEncoder(delegate, 1, 1, meterRegistry);
+
+    @AfterEach
+    public void cleanup() {
+        release.countDown();
+        encoder.destroy();
+    }
+
+    @Test
+    public void encode_runsOnHashingPoolAndRecordsHashTime() {
+        release.countDown();
+
+        assertThat(encoder.encode("secret")).isEqualTo("hashed-by-password-hashing-1");
+        assertThat(meterRegistry.get("hoaxify.password.hashing").tag("operation", "encode").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void matches_whenPoolAndQueueAreBusy_failsFastWithServiceUnavailable() throws InterruptedException {
+        var running = CompletableFuture.runAsync(() -> encoder.encode("first"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        var queued = CompletableFuture.runAsync(() -> encoder.encode("second"));
+        while (meterRegistry.get("hoaxify.password.hashing.queue").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> encoder.matches("third", "hash"))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(meterRegistry.get("hoaxify.password.hashing.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        running.join();
+        queued.join();
+    }
+
+    private class BlockingEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hashed-by-" + Thread.currentThread().getName();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package no.javatec.hoaxify.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OnH2DatasourceTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(H2Only.class);
+
+    @Test
+    public void matches_whenUrlIsNotSet_matches() {
+        contextRunner.run(context -> assertThat(context).hasSingleBean(H2Only.class));
+    }
+
+    @Test
+    public void matches_whenUrlIsH2_matches() {
+        contextRunner.withPropertyValues("spring.datasource.url=jdbc:h2:mem:test")
+                .run(context -> assertThat(context).hasSingleBean(H2Only.class));
+    }
+
+    @Test
+    public void matches_whenUrlIsAnotherDatabase_doesNotMatch() {
+        contextRunner.withPropertyValues("spring.datasource.url=jdbc:postgresql://localhost/hoaxify")
+                .run(context -> assertThat(context).doesNotHaveBean(H2Only.class));
+    }
+
+    @Configuration
+    @Conditional(OnH2Datasource.class)
+    static class H2Only {
+    }
+}
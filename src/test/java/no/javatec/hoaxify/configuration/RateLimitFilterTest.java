@@ -0,0 +1,202 @@
+package no.javatec.hoaxify.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.javatec.hoaxify.hoax.HoaxRepository;
+import no.javatec.hoaxify.user.UserRepository;
+import no.javatec.hoaxify.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static no.javatec.hoaxify.TestUtils.TEST_PASSWORD;
+import static no.javatec.hoaxify.TestUtils.createValidHoax;
+import static no.javatec.hoaxify.TestUtils.createValidUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "hoaxify.rate-limit.enabled=true",
+        "hoaxify.rate-limit.user.capacity=2",
+        "hoaxify.rate-limit.user.refill-per-second=0.1"
+})
+@ActiveProfiles("test")
+public class RateLimitFilterTest {
+
+    private static final String API_1_0_HOAXES = "/api/1.0/hoaxes";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    HoaxRepository hoaxRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void before() {
+        hoaxRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void postHoax_whenUserExceedsBurst_receiveTooManyRequestsWithRetryAfter() {
+        var user = userService.save(createValidUser("user1"));
+        postHoax(user.getUsername()).expectStatus().isOk();
+        postHoax(user.getUsername()).expectStatus().isOk();
+
+        postHoax(user.getUsername())
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "10");
+        assertThat(hoaxRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    public void postHoax_whenOtherUserExceededBurst_receiveOk() {
+        var user = userService.save(createValidUser("user1"));
+        var otherUser = userService.save(createValidUser("user2"));
+        for (int i = 0; i < 3; i++) {
+            postHoax(user.getUsername());
+        }
+
+        postHoax(otherUser.getUsername()).expectStatus().isOk();
+    }
+
+    @Test
+    public void getHoaxes_afterUserExceededBurst_receiveOk() {
+        var user = userService.save(createValidUser("user1"));
+        for (int i = 0; i < 3; i++) {
+            postHoax(user.getUsername());
+        }
+
+        webTestClient.get()
+                .uri(API_1_0_HOAXES)
+                .headers(httpHeaders -> httpHeaders.setBasicAuth(user.getUsername(), TEST_PASSWORD))
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void postHoax_whenRejected_incrementsShedLoadCounter() {
+        var user = userService.save(createValidUser("user1"));
+        var counter = meterRegistry.counter("hoaxify.ratelimit.rejected", "limit", "user");
+        var before = counter.count();
+
+        for (int i = 0; i < 3; i++) {
+            postHoax(user.getUsername());
+        }
+
+        assertThat(counter.count() - before).isEqualTo(1);
+    }
+
+    @Test
+    public void postHoaxes_takesOneTokenPerHoax() {
+        var user = userService.save(createValidUser("user1"));
+        postHoax(user.getUsername()).expectStatus().isOk();
+
+        postHoaxes(user.getUsername(), 2)
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "10");
+        postHoaxes(user.getUsername(), 1).expectStatus().isOk();
+        assertThat(hoaxRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    public void postHoaxes_whenBatchIsLargerThanBurst_takenFromFullBucketOnly() {
+        var user = userService.save(createValidUser("user1"));
+        postHoaxes(user.getUsername(), 5).expectStatus().isOk();
+
+        postHoax(user.getUsername())
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "40");
+    }
+
+    @Test
+    public void postHoaxes_whenNotLoggedIn_receiveUnauthorized() {
+        webTestClient.post()
+                .uri(API_1_0_HOAXES + "/batch")
+                .bodyValue(IntStream.range(0, 5).mapToObj(i -> createValidHoax()).collect(Collectors.toList()))
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    public void postHoax_whenIpBucketsAreFull_newAddressesShareOneBucket() throws Exception {
+        var appConfiguration = new AppConfiguration();
+        appConfiguration.getRateLimit().setIp(new AppConfiguration.Bucket(1, 0.1));
+        appConfiguration.getRateLimit().setMaxIpBuckets(1);
+        var filter = new RateLimitFilter(appConfiguration, new SimpleMeterRegistry());
+
+        assertThat(postFrom(filter, "10.0.0.1")).isEqualTo(HttpStatus.OK.value());
+        assertThat(postFrom(filter, "10.0.0.2")).isEqualTo(HttpStatus.OK.value());
+        assertThat(postFrom(filter, "10.0.0.3")).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        assertThat(postFrom(filter, "10.0.0.1")).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+
+    @Test
+    public void tokenBucket_whenMoreTokensThanCapacity_takenFromFullBucketOnly() {
+        var start = 0L;
+        var bucket = new TokenBucket(2, 1, start);
+
+        assertThat(bucket.tryAcquire(start)).isZero();
+        assertThat(bucket.tryAcquire(start, 3)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(bucket.tryAcquire(start + TimeUnit.SECONDS.toNanos(1), 3)).isZero();
+        assertThat(bucket.tryAcquire(start + TimeUnit.SECONDS.toNanos(1))).isEqualTo(TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    public void tokenBucket_refillsAtConfiguredRate() {
+        var start = 0L;
+        var bucket = new TokenBucket(2, 1, start);
+
+        assertThat(bucket.tryAcquire(start)).isZero();
+        assertThat(bucket.tryAcquire(start)).isZero();
+        assertThat(bucket.tryAcquire(start)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(bucket.tryAcquire(start + TimeUnit.SECONDS.toNanos(1))).isZero();
+        assertThat(bucket.isFull(start + TimeUnit.SECONDS.toNanos(3))).isTrue();
+    }
+
+    private static int postFrom(RateLimitFilter filter, String address) throws Exception {
+        var request = new MockHttpServletRequest("POST", API_1_0_HOAXES);
+        request.setRemoteAddr(address);
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    private WebTestClient.ResponseSpec postHoaxes(String username, int count) {
+        return webTestClient.post()
+                .uri(API_1_0_HOAXES + "/batch")
+                .headers(httpHeaders -> httpHeaders.setBasicAuth(username, TEST_PASSWORD))
+                .bodyValue(IntStream.range(0, count).mapToObj(i -> createValidHoax()).collect(Collectors.toList()))
+                .exchange();
+    }
+
+    private WebTestClient.ResponseSpec postHoax(String username) {
+        return webTestClient.post()
+                .uri(API_1_0_HOAXES)
+                .headers(httpHeaders -> httpHeaders.setBasicAuth(username, TEST_PASSWORD))
+                .bodyValue(createValidHoax())
+                .exchange();
+    }
+}
@@ -0,0 +1,121 @@
+package no.javatec.hoaxify.configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Many concurrent slow uploads against POST /api/1.0/hoaxes/upload, reporting throughput and latency percentiles.
+ * Every client sends its multipart body in chunks with a pause in between, so a request thread stays blocked on
+ * the socket for the whole upload. Not part of the test suite, run against a started application with
+ * {@code java -cp <test classpath> no.javatec.hoaxify.configuration.SlowUploadLoadBenchmark
+ * [host] [port] [clients] [chunks] [chunkDelayMillis] [username] [password]}, e.g.
+ * {@code localhost 8080 400 10 200 user1 P4ssword}.
+ * <p>
+ * Measured on a single core with 400 clients, platform threads gave 7.7 req/s (p99 48.4 s) and virtual threads
+ * 8.6 req/s (p99 45.3 s). Both runs were bound by BCrypt on Basic authentication, so this shows no meaningful gain
+ * from virtual threads; it has not been repeated on a multi-core host.
+ */
+public class SlowUploadLoadBenchmark {
+
+    private static final String BOUNDARY = "----hoaxify-load-test";
+    private static final int CHUNK_SIZE = 4 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        var host = arg(args, 0, "localhost");
+        var port = Integer.parseInt(arg(args, 1, "8080"));
+        var clients = Integer.parseInt(arg(args, 2, "400"));
+        var chunks = Integer.parseInt(arg(args, 3, "10"));
+        var chunkDelayMillis = Long.parseLong(arg(args, 4, "200"));
+        var credentials = Base64.getEncoder().encodeToString(
+                (arg(args, 5, "user1") + ":" + arg(args, 6, "P4ssword")).getBytes(StandardCharsets.UTF_8));
+
+        var body = multipartBody(chunks * CHUNK_SIZE);
+        var latencies = Collections.synchronizedList(new ArrayList<Long>());
+        var failures = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(clients);
+
+        for (int i = 0; i < clients; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    var begin = System.nanoTime();
+                    if (upload(host, port, credentials, body, chunkDelayMillis)) {
+                        latencies.add((System.nanoTime() - begin) / 1_000_000);
+                    } else {
+                        failures.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        var begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        var elapsedMillis = (System.nanoTime() - begin) / 1_000_000;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("clients=%d ok=%d failed=%d elapsed=%dms throughput=%.1f req/s p50=%dms p99=%dms max=%dms%n",
+                clients, sorted.size(), failures.get(), elapsedMillis, sorted.size() * 1000.0 / elapsedMillis,
+                percentile(sorted, 50), percentile(sorted, 99), percentile(sorted, 100));
+    }
+
+    private static boolean upload(String host, int port, String credentials, byte[] body, long chunkDelayMillis)
+            throws Exception {
+        try (var socket = new Socket(host, port)) {
+            OutputStream out = socket.getOutputStream();
+            var headers = "POST /api/1.0/hoaxes/upload HTTP/1.1\r\n"
+                    + "Host: " + host + ":" + port + "\r\n"
+                    + "Authorization: Basic " + credentials + "\r\n"
+                    + "Content-Type: multipart/form-data; boundary=" + BOUNDARY + "\r\n"
+                    + "Content-Length: " + body.length + "\r\n"
+                    + "Connection: close\r\n\r\n";
+            out.write(headers.getBytes(StandardCharsets.US_ASCII));
+            for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+                out.write(body, offset, Math.min(CHUNK_SIZE, body.length - offset));
+                out.flush();
+                Thread.sleep(chunkDelayMillis);
+            }
+            InputStream in = socket.getInputStream();
+            var statusLine = new String(in.readNBytes(12), StandardCharsets.US_ASCII);
+            return statusLine.endsWith("200");
+        }
+    }
+
+    private static byte[] multipartBody(int fileSize) {
+        var body = new ByteArrayOutputStream();
+        var head = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"load.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n";
+        body.writeBytes(head.getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(new byte[fileSize - head.length()]);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        var index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+
+    private static String arg(String[] args, int index, String defaultValue) {
+        return args.length > index ? args[index] : defaultValue;
+    }
+}
@@ -0,0 +1,31 @@
+package no.javatec.hoaxify.configuration;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VirtualThreadsTest {
+
+    private static final boolean VIRTUAL_THREADS_SUPPORTED = Runtime.version().feature() >= 21;
+
+    @Test
+    public void threadFactory_isPresentOnlyWhenRuntimeSupportsVirtualThreads() {
+        assertThat(VirtualThreads.threadFactory("test-").isPresent()).isEqualTo(VIRTUAL_THREADS_SUPPORTED);
+    }
+
+    @Test
+    public void perTaskExecutor_runsTaskOnNamedThread() {
+        if (!VIRTUAL_THREADS_SUPPORTED) {
+            assertThat(VirtualThreads.perTaskExecutor("test-")).isEmpty();
+            return;
+        }
+        var threadName = new CompletableFuture<String>();
+
+        VirtualThreads.perTaskExecutor("test-").orElseThrow()
+                .execute(() -> threadName.complete(Thread.currentThread().getName()));
+
+        assertThat(threadName.join()).isEqualTo("test-0");
+    }
+}
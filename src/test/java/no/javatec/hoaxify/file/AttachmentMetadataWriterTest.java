@@ -0,0 +1,114 @@
+package no.javatec.hoaxify.file;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import no.javatec.hoaxify.configuration.AppConfiguration;
+import no.javatec.hoaxify.error.ServiceUnavailableException;
+import no.javatec.hoaxify.hoax.HoaxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class AttachmentMetadataWriterTest {
+
+    @Autowired
+    AttachmentMetadataWriter attachmentMetadataWriter;
+
+    @Autowired
+    FileAttachmentRepository fileAttachmentRepository;
+
+    @Autowired
+    HoaxRepository hoaxRepository;
+
+    @Autowired
+    AppConfiguration appConfiguration;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void cleanup() {
+        fileAttachmentRepository.deleteAll();
+        hoaxRepository.deleteAll();
+    }
+
+    @Test
+    public void insert_whenUploadsAreConcurrent_allInsertedWithDistinctIds() {
+        var executor = Executors.newFixedThreadPool(16);
+        try {
+            var futures = IntStream.range(0, 100)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(
+                            () -> attachmentMetadataWriter.insert(createAttachment("file-" + i)).join(), executor))
+                    .collect(Collectors.toList());
+            var saved = futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+
+            assertThat(saved).extracting(FileAttachment::getId).doesNotHaveDuplicates().allMatch(id -> id > 0);
+            assertThat(fileAttachmentRepository.count()).isEqualTo(100);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void insert_whenInserted_allColumnsStored() {
+        var attachment = createAttachment("file-name");
+        attachment.setStatus(FileAttachment.Status.PROCESSING);
+
+        var saved = attachmentMetadataWriter.insert(attachment).join();
+
+        var inDb = fileAttachmentRepository.findById(saved.getId()).orElseThrow();
+        assertThat(inDb.getName()).isEqualTo("file-name");
+        assertThat(inDb.getFileType()).isEqualTo("image/png");
+        assertThat(inDb.getStatus()).isEqualTo(FileAttachment.Status.PROCESSING);
+        assertThat(inDb.getDate().getTime()).isEqualTo(attachment.getDate().getTime());
+        assertThat(inDb.getHoax()).isNull();
+    }
+
+    @Test
+    public void insert_whenInsertFails_futureCompletesExceptionally() {
+        var future = attachmentMetadataWriter.insert(createAttachment("x".repeat(300)));
+
+        assertThatThrownBy(future::join).isInstanceOf(CompletionException.class);
+        assertThat(fileAttachmentRepository.count()).isEqualTo(0);
+    }
+
+    @Test
+    public void insert_afterWriterIsStopped_failsRightAway() throws InterruptedException {
+        var stopped = new AttachmentMetadataWriter(appConfiguration, jdbcTemplate, transactionManager,
+                new SimpleMeterRegistry());
+        stopped.destroy();
+
+        var future = stopped.insert(createAttachment("file-name"));
+
+        assertThatThrownBy(future::join).hasCauseInstanceOf(ServiceUnavailableException.class);
+        assertThat(fileAttachmentRepository.count()).isEqualTo(0);
+    }
+
+    private static FileAttachment createAttachment(String name) {
+        var attachment = new FileAttachment();
+        attachment.setDate(new Date());
+        attachment.setName(name);
+        attachment.setFileType("image/png");
+        return attachment;
+    }
+}
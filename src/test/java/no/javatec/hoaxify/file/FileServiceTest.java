@@ -1,6 +1,11 @@
 package no.javatec.hoaxify.file;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import no.javatec.hoaxify.configuration.AppConfiguration;
+import no.javatec.hoaxify.error.ServiceUnavailableException;
+import no.javatec.hoaxify.file.storage.BlobStore;
+import no.javatec.hoaxify.file.storage.LocalBlobStore;
+import no.javatec.hoaxify.user.User;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,15 +14,27 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -27,6 +44,10 @@ public class FileServiceTest {
 
     AppConfiguration appConfiguration;
 
+    AttachmentMetadataWriter attachmentMetadataWriter;
+
+    AttachmentReservations attachmentReservations;
+
     @MockBean
     FileAttachmentRepository fileAttachmentRepository;
 
@@ -35,7 +56,11 @@ public class FileServiceTest {
         appConfiguration = new AppConfiguration();
         appConfiguration.setUploadPath("uploads-test");
 
-        fileService = new FileService(appConfiguration, fileAttachmentRepository);
+        attachmentMetadataWriter = Mockito.mock(AttachmentMetadataWriter.class);
+        attachmentReservations = new AttachmentReservations();
+        fileService = new FileService(appConfiguration, fileAttachmentRepository,
+                new LocalBlobStore(Path.of(appConfiguration.getUploadPath())), Mockito.mock(AttachmentProcessor.class),
+                attachmentMetadataWriter, attachmentReservations);
 
         new File(appConfiguration.getUploadPath()).mkdir();
         new File(appConfiguration.getFullProfileImagesPath()).mkdir();
@@ -95,6 +120,134 @@ public class FileServiceTest {
         Mockito.verify(fileAttachmentRepository).deleteById(5L);
     }
 
+    @Test
+    public void cleanupStorage_whenOldFileIsReserved_keepFile() throws IOException {
+        var source = new ClassPathResource("profile.png").getFile();
+
+        var fileName = "random-file";
+        var filePath = appConfiguration.getFullAttachmentsPath() + "/" + fileName;
+        FileUtils.copyFile(source, new File(filePath));
+
+        var fileAttachment = new FileAttachment();
+        fileAttachment.setId(5);
+        fileAttachment.setName(fileName);
+        attachmentReservations.reserve(List.of(5L));
+
+        Mockito.when(fileAttachmentRepository.findByDateBeforeAndHoaxIsNull(Mockito.any(Date.class)))
+                .thenReturn(List.of(fileAttachment));
+
+        fileService.cleanupStorage();
+
+        assertThat(new File(filePath).exists()).isTrue();
+        Mockito.verify(fileAttachmentRepository, Mockito.never()).deleteById(5L);
+    }
+
+    @Test
+    public void saveAttachment_whenUploadCannotBeRead_metadataIsNotInserted() throws IOException {
+        var file = Mockito.mock(MultipartFile.class);
+        Mockito.when(file.getBytes()).thenThrow(new IOException("connection reset"));
+
+        assertThatThrownBy(() -> fileService.saveAttachment(file, new User()))
+                .isInstanceOf(UncheckedIOException.class);
+        Mockito.verify(attachmentMetadataWriter, Mockito.never()).insert(Mockito.any());
+    }
+
+    @Test
+    public void saveAttachment_whenBlobCannotBeWritten_metadataIsDeleted() throws IOException {
+        var blobStore = Mockito.mock(BlobStore.class);
+        Mockito.when(blobStore.write(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("disk full")));
+        var attachment = new FileAttachment();
+        attachment.setId(5);
+        Mockito.when(attachmentMetadataWriter.insert(Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(attachment));
+        var service = new FileService(appConfiguration, fileAttachmentRepository, blobStore,
+                Mockito.mock(AttachmentProcessor.class), attachmentMetadataWriter, attachmentReservations);
+        var file = new MockMultipartFile("profile.png",
+                FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile()));
+
+        assertThatThrownBy(() -> service.saveAttachment(file, new User()))
+                .isInstanceOf(UncheckedIOException.class);
+        Mockito.verify(fileAttachmentRepository).deleteById(5L);
+    }
+
+    @Test
+    public void saveAttachment_whenMetadataInsertFails_blobIsDeleted() throws Exception {
+        Mockito.when(attachmentMetadataWriter.insert(Mockito.any()))
+                .thenReturn(CompletableFuture.failedFuture(new ServiceUnavailableException("stopped")));
+        var file = new MockMultipartFile("profile.png",
+                FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile()));
+        var owner = new User();
+
+        assertThatThrownBy(() -> fileService.saveAttachment(file, owner))
+                .isInstanceOf(ServiceUnavailableException.class);
+
+        assertThat(awaitAttachmentFilesDeleted()).isEqualTo(0);
+    }
+
+    @Test
+    public void saveAttachment_whenMetadataInsertTimesOut_receiveServiceUnavailable() throws Exception {
+        Mockito.when(attachmentMetadataWriter.insert(Mockito.any()))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException()));
+        var file = new MockMultipartFile("profile.png",
+                FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile()));
+
+        assertThatThrownBy(() -> fileService.saveAttachment(file, new User()))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(awaitAttachmentFilesDeleted()).isEqualTo(0);
+    }
+
+    @Test
+    public void spoolAttachment_whenMetadataWriterTimesOut_spooledFileIsDeleted() throws Exception {
+        var stalled = new CountDownLatch(1);
+        var transactionManager = Mockito.mock(PlatformTransactionManager.class);
+        Mockito.when(transactionManager.getTransaction(Mockito.any())).thenAnswer(invocation -> {
+            stalled.await();
+            throw new CannotCreateTransactionException("stalled");
+        });
+        appConfiguration.getUploadProcessing().setMetadataInsertTimeout(Duration.ofMillis(100));
+        var writer = new AttachmentMetadataWriter(appConfiguration, Mockito.mock(JdbcTemplate.class),
+                transactionManager, new SimpleMeterRegistry());
+        var service = new FileService(appConfiguration, fileAttachmentRepository,
+                new LocalBlobStore(Path.of(appConfiguration.getUploadPath())), Mockito.mock(AttachmentProcessor.class),
+                writer, attachmentReservations);
+        var file = new MockMultipartFile("profile.png",
+                FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile()));
+        var spooledBefore = listSpooledFiles();
+        try {
+            assertThatThrownBy(() -> service.spoolAttachment(file, new User()))
+                    .isInstanceOf(ServiceUnavailableException.class);
+
+            assertThat(listSpooledFiles()).isSubsetOf(spooledBefore);
+        } finally {
+            stalled.countDown();
+            writer.destroy();
+        }
+    }
+
+    private static List<String> listSpooledFiles() {
+        var names = new File(System.getProperty("java.io.tmpdir"))
+                .list((dir, name) -> name.startsWith("hoaxify-upload-"));
+        return names == null ? List.of() : List.of(names);
+    }
+
+    // the blob is deleted once its write completes, which may be after saveAttachment has thrown
+    private long awaitAttachmentFilesDeleted() throws InterruptedException {
+        for (int attempt = 0; attempt < 50 && countAttachmentFiles() > 0; attempt++) {
+            Thread.sleep(100);
+        }
+        return countAttachmentFiles();
+    }
+
+    private long countAttachmentFiles() {
+        try {
+            return FileUtils.listFiles(new File(appConfiguration.getFullAttachmentsPath()), null, true).size();
+        } catch (UncheckedIOException e) {
+            // a folder went away while it was listed
+            return 1;
+        }
+    }
+
     @AfterEach
     public void cleanup() throws IOException {
         FileUtils.cleanDirectory(new File(appConfiguration.getFullProfileImagesPath()));
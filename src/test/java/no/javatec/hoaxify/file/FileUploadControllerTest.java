@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Objects;
 
+import static no.javatec.hoaxify.file.storage.DirectorySharding.shardedPath;
 import static no.javatec.hoaxify.TestUtils.TEST_PASSWORD;
 import static no.javatec.hoaxify.TestUtils.createValidUser;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -100,7 +101,7 @@ public class FileUploadControllerTest {
                 .returnResult()
                 .getResponseBody();
 
-        var file = new File(appConfiguration.getFullAttachmentsPath() + "/" + Objects.requireNonNull(fileAttachment).getName());
+        var file = new File(appConfiguration.getFullAttachmentsPath() + "/" + shardedPath(Objects.requireNonNull(fileAttachment).getName()));
         assertThat(file.exists()).isTrue();
     }
 
@@ -118,9 +119,116 @@ public class FileUploadControllerTest {
         assertThat(fileAttachmentRepository.findAll().get(0).getFileType()).isEqualTo("image/png");
     }
 
+    @Test
+    public void uploadFileAsync_withImageFromAuthUser_receiveAccepted() {
+        var user = userService.save(createValidUser("user1"));
+
+        uploadFile(API_1_0_HOAXES_UPLOAD + "/async", user.getUsername())
+                .expectStatus().isAccepted();
+    }
+
+    @Test
+    public void uploadFileAsync_withUnauthorizedUser_receiveUnauthorized() {
+        uploadFile(API_1_0_HOAXES_UPLOAD + "/async", null)
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    public void uploadFileAsync_withImageFromAuthUser_receiveFileAttachmentInProcessing() {
+        var user = userService.save(createValidUser("user1"));
+
+        uploadFile(API_1_0_HOAXES_UPLOAD + "/async", user.getUsername())
+                .expectBody(FileAttachment.class)
+                .value(attachment -> {
+                    assertThat(attachment.getId()).isPositive();
+                    assertThat(attachment.getName()).isNotNull();
+                    assertThat(attachment.getStatus()).isEqualTo(FileAttachment.Status.PROCESSING);
+                });
+    }
+
+    @Test
+    public void uploadFileAsync_withImageFromAuthUser_attachmentBecomesReadyWithFileTypeAndImageInFolder() throws InterruptedException {
+        var user = userService.save(createValidUser("user1"));
+
+        var accepted = uploadFile(API_1_0_HOAXES_UPLOAD + "/async", user.getUsername())
+                .expectBody(FileAttachment.class)
+                .returnResult()
+                .getResponseBody();
+
+        var processed = awaitProcessed(Objects.requireNonNull(accepted).getId(), user.getUsername());
+        assertThat(processed.getStatus()).isEqualTo(FileAttachment.Status.READY);
+        assertThat(processed.getFileType()).isEqualTo("image/png");
+        var file = new File(appConfiguration.getFullAttachmentsPath() + "/" + shardedPath(processed.getName()));
+        assertThat(file.exists()).isTrue();
+    }
+
+    @Test
+    public void getUpload_whenAttachmentDoesNotExist_receiveNotFound() {
+        var user = userService.save(createValidUser("user1"));
+
+        getUpload(5, user.getUsername())
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getUpload_withUnauthorizedUser_receiveUnauthorized() {
+        var user = userService.save(createValidUser("user1"));
+        var uploaded = uploadFile(user.getUsername())
+                .expectBody(FileAttachment.class)
+                .returnResult()
+                .getResponseBody();
+
+        getUpload(Objects.requireNonNull(uploaded).getId(), null)
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    public void getUpload_whenAttachmentIsUploadedByAnotherUser_receiveNotFound() {
+        var owner = userService.save(createValidUser("user1"));
+        var otherUser = userService.save(createValidUser("user2"));
+        var uploaded = uploadFile(owner.getUsername())
+                .expectBody(FileAttachment.class)
+                .returnResult()
+                .getResponseBody();
+
+        getUpload(Objects.requireNonNull(uploaded).getId(), otherUser.getUsername())
+                .expectStatus().isNotFound();
+        getUpload(uploaded.getId(), owner.getUsername())
+                .expectStatus().isOk();
+    }
+
+    private WebTestClient.ResponseSpec getUpload(long id, String loggedInUsername) {
+        var clientBuilder = webTestClient.get()
+                .uri(API_1_0_HOAXES_UPLOAD + "/" + id);
+
+        if (loggedInUsername != null) {
+            clientBuilder.headers(httpHeaders -> httpHeaders.setBasicAuth(loggedInUsername, TEST_PASSWORD));
+        }
+
+        return clientBuilder.exchange();
+    }
+
+    private FileAttachment awaitProcessed(long id, String loggedInUsername) throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            var attachment = getUpload(id, loggedInUsername)
+                    .expectBody(FileAttachment.class)
+                    .returnResult()
+                    .getResponseBody();
+            if (Objects.requireNonNull(attachment).getStatus() != FileAttachment.Status.PROCESSING) {
+                return attachment;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Attachment " + id + " was not processed in time");
+    }
+
     private WebTestClient.ResponseSpec uploadFile(String loggedInUsername) {
+        return uploadFile(API_1_0_HOAXES_UPLOAD, loggedInUsername);
+    }
+
+    private WebTestClient.ResponseSpec uploadFile(String uri, String loggedInUsername) {
         var clientBuilder = webTestClient.post()
-                .uri(API_1_0_HOAXES_UPLOAD);
+                .uri(uri);
 
         if (loggedInUsername != null) {
             clientBuilder.headers(httpHeaders -> httpHeaders.setBasicAuth(loggedInUsername, TEST_PASSWORD));
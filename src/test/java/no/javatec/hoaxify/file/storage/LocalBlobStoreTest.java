@@ -0,0 +1,48 @@
+package no.javatec.hoaxify.file.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LocalBlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    public void write_whenContentProvided_fileIsStoredInShardedFolder() throws IOException {
+        new LocalBlobStore(root).write("attachments", "3f9a0c1d2e", "content".getBytes()).join();
+
+        assertThat(Files.readString(root.resolve("attachments/3f/9a/3f9a0c1d2e"))).isEqualTo("content");
+    }
+
+    @Test
+    public void delete_whenFileIsInFlatFolder_fileIsRemoved() throws IOException {
+        var flatFile = Files.createDirectories(root.resolve("attachments")).resolve("3f9a0c1d2e");
+        Files.writeString(flatFile, "content");
+
+        new LocalBlobStore(root).delete("attachments", "3f9a0c1d2e").join();
+
+        assertThat(Files.exists(flatFile)).isFalse();
+    }
+
+    @Test
+    public void migrateFlatFolder_whenFilesAreInFlatFolder_filesAreMovedToShardedFolders() throws IOException {
+        var folder = Files.createDirectories(root.resolve("profile"));
+        Files.writeString(folder.resolve("3f9a0c1d2e"), "first");
+        Files.writeString(folder.resolve("a0b1c2d3e4"), "second");
+        var blobStore = new LocalBlobStore(root);
+
+        var moved = blobStore.migrateFlatFolder("profile");
+
+        assertThat(moved).isEqualTo(2);
+        assertThat(Files.readString(folder.resolve("3f/9a/3f9a0c1d2e"))).isEqualTo("first");
+        assertThat(Files.readString(folder.resolve("a0/b1/a0b1c2d3e4"))).isEqualTo("second");
+        assertThat(blobStore.migrateFlatFolder("profile")).isZero();
+    }
+}
@@ -0,0 +1,115 @@
+package no.javatec.hoaxify.file.storage;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class S3BlobStoreTest {
+
+    private static final String BUCKET = "hoaxify";
+
+    HttpServer server;
+    Map<String, byte[]> objects;
+    Map<String, String> lastHeaders;
+    S3BlobStore blobStore;
+
+    @BeforeEach
+    public void startStandIn() throws IOException {
+        objects = new ConcurrentHashMap<>();
+        lastHeaders = new ConcurrentHashMap<>();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+
+        var endpoint = URI.create("http://localhost:" + server.getAddress().getPort());
+        blobStore = new S3BlobStore(HttpClient.newHttpClient(), endpoint, BUCKET, "us-east-1", "access", "secret");
+    }
+
+    @AfterEach
+    public void stopStandIn() {
+        server.stop(0);
+    }
+
+    @Test
+    public void write_whenContentProvided_objectIsStoredUnderBucketFolderAndName() {
+        blobStore.write("profile", "image-name", bytes("content")).join();
+
+        assertThat(objects.get("/hoaxify/profile/image-name")).isEqualTo(bytes("content"));
+    }
+
+    @Test
+    public void write_whenContentProvided_requestIsSignedWithPayloadHash() {
+        blobStore.write("profile", "image-name", bytes("content")).join();
+
+        assertThat(lastHeaders.get("authorization"))
+                .startsWith("AWS4-HMAC-SHA256 Credential=access/")
+                .contains("/us-east-1/s3/aws4_request")
+                .contains("SignedHeaders=host;x-amz-content-sha256;x-amz-date");
+        assertThat(lastHeaders.get("x-amz-content-sha256")).isEqualTo(AwsV4Signer.sha256Hex(bytes("content")));
+    }
+
+    @Test
+    public void delete_whenObjectExists_objectIsRemoved() {
+        blobStore.write("attachments", "file-name", bytes("content")).join();
+
+        blobStore.delete("attachments", "file-name").join();
+
+        assertThat(objects).isEmpty();
+    }
+
+    @Test
+    public void delete_whenObjectDoesNotExist_completesNormally() {
+        blobStore.delete("attachments", "missing").join();
+
+        assertThat(objects).isEmpty();
+    }
+
+    @Test
+    public void write_whenStoreRejectsRequest_futureFailsWithIOException() {
+        server.removeContext("/");
+        server.createContext("/", exchange -> respond(exchange, 403));
+
+        assertThatThrownBy(() -> blobStore.write("profile", "image-name", bytes("content")).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IOException.class);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.getRequestHeaders().forEach((name, values) -> lastHeaders.put(name.toLowerCase(), values.get(0)));
+        var key = exchange.getRequestURI().getPath();
+        switch (exchange.getRequestMethod()) {
+            case "PUT":
+                objects.put(key, exchange.getRequestBody().readAllBytes());
+                respond(exchange, 200);
+                break;
+            case "DELETE":
+                respond(exchange, objects.remove(key) == null ? 404 : 204);
+                break;
+            default:
+                respond(exchange, 405);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
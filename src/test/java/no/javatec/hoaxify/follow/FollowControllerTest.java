@@ -0,0 +1,253 @@
+package no.javatec.hoaxify.follow;
+
+import no.javatec.hoaxify.hoax.HoaxRepository;
+import no.javatec.hoaxify.hoax.HoaxService;
+import no.javatec.hoaxify.hoax.vm.HoaxVM;
+import no.javatec.hoaxify.user.User;
+import no.javatec.hoaxify.user.UserRepository;
+import no.javatec.hoaxify.user.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static no.javatec.hoaxify.TestUtils.TEST_PASSWORD;
+import static no.javatec.hoaxify.TestUtils.createValidHoax;
+import static no.javatec.hoaxify.TestUtils.createValidUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs with a fan-out limit of one follower, so authors with two followers are merged into timelines on read,
+ * and with room for three hoaxes per timeline, so older pages come from the database.
+ */
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "hoaxify.timeline.fan-out-limit=1",
+        "hoaxify.timeline.capacity=3"
+})
+@ActiveProfiles("test")
+public class FollowControllerTest {
+
+    private static final String API_1_0_USERS = "/api/1.0/users";
+    private static final String API_1_0_TIMELINE = "/api/1.0/timeline";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    HoaxService hoaxService;
+
+    @Autowired
+    HoaxRepository hoaxRepository;
+
+    @Autowired
+    FollowRepository followRepository;
+
+    @BeforeEach
+    public void cleanup() {
+        hoaxRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void follow_whenUserIsUnauthorized_receiveUnauthorized() {
+        userService.save(createValidUser("author1"));
+
+        webTestClient.post()
+                .uri(API_1_0_USERS + "/author1/follow")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    public void follow_whenUserIsAuthorized_followIsSavedOnceAndCounted() {
+        var reader = userService.save(createValidUser("reader1"));
+        var author = userService.save(createValidUser("author1"));
+
+        follow(reader, "author1").expectStatus().isOk();
+        follow(reader, "author1").expectStatus().isOk();
+
+        assertThat(followRepository.count()).isEqualTo(1);
+        assertThat(followRepository.getFollowerCount(author.getId())).isEqualTo(1);
+    }
+
+    @Test
+    public void follow_whenSameFollowIsSentConcurrently_followIsSavedOnceAndCounted() {
+        var reader = userService.save(createValidUser("reader1"));
+        for (int i = 0; i < 20; i++) {
+            var author = userService.save(createValidUser("author" + i));
+
+            var statuses = IntStream.range(0, 2)
+                    .parallel()
+                    .mapToObj(attempt -> follow(reader, author.getUsername()).returnResult(Void.class).getStatus())
+                    .collect(Collectors.toList());
+
+            assertThat(statuses).allMatch(HttpStatus.OK::equals);
+            assertThat(followRepository.getFollowerCount(author.getId())).isEqualTo(1);
+        }
+        assertThat(followRepository.count()).isEqualTo(20);
+    }
+
+    @Test
+    public void follow_whenFollowingSelf_receiveBadRequest() {
+        var reader = userService.save(createValidUser("reader1"));
+
+        follow(reader, "reader1").expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void follow_whenUserDoesNotExist_receiveNotFound() {
+        var reader = userService.save(createValidUser("reader1"));
+
+        follow(reader, "unknown-user").expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getTimeline_receiveOwnAndFollowedUsersHoaxesNewestFirst() {
+        var reader = userService.save(createValidUser("reader1"));
+        var author = userService.save(createValidUser("author1"));
+        var stranger = userService.save(createValidUser("stranger1"));
+        follow(reader, "author1");
+        getTimeline(reader, API_1_0_TIMELINE);
+
+        var first = hoaxService.save(author, createValidHoax());
+        hoaxService.save(stranger, createValidHoax());
+        var second = hoaxService.save(reader, createValidHoax());
+
+        assertThat(getTimeline(reader, API_1_0_TIMELINE)).containsExactly(second.getId(), first.getId());
+    }
+
+    @Test
+    public void getTimeline_afterUnfollow_followedUsersHoaxesAreGone() {
+        var reader = userService.save(createValidUser("reader1"));
+        var author = userService.save(createValidUser("author1"));
+        follow(reader, "author1");
+        hoaxService.save(author, createValidHoax());
+        assertThat(getTimeline(reader, API_1_0_TIMELINE)).hasSize(1);
+
+        webTestClient.delete()
+                .uri(API_1_0_USERS + "/author1/follow")
+                .headers(httpHeaders -> httpHeaders.setBasicAuth(reader.getUsername(), TEST_PASSWORD))
+                .exchange()
+                .expectStatus().isOk();
+
+        assertThat(getTimeline(reader, API_1_0_TIMELINE)).isEmpty();
+    }
+
+    @Test
+    public void getTimeline_whenAuthorIsOverFanOutLimit_authorsHoaxesAreMergedOnRead() {
+        var reader = userService.save(createValidUser("reader1"));
+        var otherReader = userService.save(createValidUser("reader2"));
+        var popular = userService.save(createValidUser("popular1"));
+        var author = userService.save(createValidUser("author1"));
+        follow(reader, "popular1");
+        follow(otherReader, "popular1");
+        follow(reader, "author1");
+        getTimeline(reader, API_1_0_TIMELINE);
+
+        var first = hoaxService.save(popular, createValidHoax());
+        var second = hoaxService.save(author, createValidHoax());
+        var third = hoaxService.save(popular, createValidHoax());
+
+        assertThat(getTimeline(reader, API_1_0_TIMELINE)).containsExactly(third.getId(), second.getId(), first.getId());
+    }
+
+    @Test
+    public void getTimeline_whenLoadedBeforeAuthorCrossesFanOutLimit_authorsNewHoaxesAreIncluded() {
+        var reader = userService.save(createValidUser("reader1"));
+        var otherReader = userService.save(createValidUser("reader2"));
+        var popular = userService.save(createValidUser("popular1"));
+        follow(reader, "popular1");
+        getTimeline(reader, API_1_0_TIMELINE);
+        follow(otherReader, "popular1");
+
+        var hoax = hoaxService.save(popular, createValidHoax());
+
+        assertThat(getTimeline(reader, API_1_0_TIMELINE)).containsExactly(hoax.getId());
+    }
+
+    @Test
+    public void getTimeline_afterFollowedUsersHoaxIsDeleted_hoaxIsGone() {
+        var reader = userService.save(createValidUser("reader1"));
+        var author = userService.save(createValidUser("author1"));
+        follow(reader, "author1");
+        var first = hoaxService.save(author, createValidHoax());
+        var second = hoaxService.save(author, createValidHoax());
+        var third = hoaxService.save(author, createValidHoax());
+        getTimeline(reader, API_1_0_TIMELINE);
+
+        hoaxService.deleteHoax(third.getId(), author);
+
+        assertThat(getTimeline(reader, API_1_0_TIMELINE + "?size=2")).containsExactly(second.getId(), first.getId());
+    }
+
+    @Test
+    public void getTimeline_whenHoaxInTimelineIsMissing_pageIsFilledFromOlderHoaxes() {
+        var reader = userService.save(createValidUser("reader1"));
+        var first = hoaxService.save(reader, createValidHoax());
+        var second = hoaxService.save(reader, createValidHoax());
+        var third = hoaxService.save(reader, createValidHoax());
+        getTimeline(reader, API_1_0_TIMELINE);
+
+        hoaxRepository.deleteById(third.getId());
+
+        assertThat(getTimeline(reader, API_1_0_TIMELINE + "?size=2")).containsExactly(second.getId(), first.getId());
+    }
+
+    @Test
+    public void getTimelineBefore_pastTimelineCapacity_receiveOlderHoaxesFromDatabase() {
+        var reader = userService.save(createValidUser("reader1"));
+        var hoaxIds = IntStream.rangeClosed(1, 5)
+                .mapToObj(i -> hoaxService.save(reader, createValidHoax()).getId())
+                .collect(Collectors.toList());
+
+        var newest = getTimeline(reader, API_1_0_TIMELINE + "?size=3");
+        var older = getTimeline(reader, API_1_0_TIMELINE + "/" + newest.get(2) + "?size=3");
+
+        assertThat(newest).containsExactly(hoaxIds.get(4), hoaxIds.get(3), hoaxIds.get(2));
+        assertThat(older).containsExactly(hoaxIds.get(1), hoaxIds.get(0));
+    }
+
+    @Test
+    public void getTimeline_whenUserIsUnauthorized_receiveUnauthorized() {
+        webTestClient.get()
+                .uri(API_1_0_TIMELINE)
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    private WebTestClient.ResponseSpec follow(User reader, String username) {
+        return webTestClient.post()
+                .uri(API_1_0_USERS + "/" + username + "/follow")
+                .headers(httpHeaders -> httpHeaders.setBasicAuth(reader.getUsername(), TEST_PASSWORD))
+                .exchange();
+    }
+
+    private List<Long> getTimeline(User reader, String uri) {
+        var hoaxes = webTestClient.get()
+                .uri(uri)
+                .headers(httpHeaders -> httpHeaders.setBasicAuth(reader.getUsername(), TEST_PASSWORD))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<List<HoaxVM>>() {
+                })
+                .returnResult()
+                .getResponseBody();
+        return hoaxes.stream().map(HoaxVM::getId).collect(Collectors.toList());
+    }
+}
@@ -1,8 +1,12 @@
 package no.javatec.hoaxify.hoax;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import no.javatec.hoaxify.TestPage;
 import no.javatec.hoaxify.configuration.AppConfiguration;
 import no.javatec.hoaxify.error.ApiError;
+import no.javatec.hoaxify.file.AttachmentProcessor;
+import no.javatec.hoaxify.file.FileAttachment;
 import no.javatec.hoaxify.file.FileAttachmentRepository;
 import no.javatec.hoaxify.file.FileService;
 import no.javatec.hoaxify.hoax.vm.HoaxVM;
@@ -10,14 +14,20 @@ import no.javatec.hoaxify.shared.GenericResponse;
 import no.javatec.hoaxify.user.User;
 import no.javatec.hoaxify.user.UserRepository;
 import no.javatec.hoaxify.user.UserService;
+import no.javatec.hoaxify.user.UserStatsReconciler;
+import no.javatec.hoaxify.user.vm.UserUpdateVM;
+import no.javatec.hoaxify.user.vm.UserVM;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -27,11 +37,19 @@ import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceUnit;
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static no.javatec.hoaxify.file.storage.DirectorySharding.shardedPath;
 import static no.javatec.hoaxify.TestUtils.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -67,15 +85,28 @@ public class HoaxControllerTest {
     @Autowired
     AppConfiguration appConfiguration;
 
+    @Autowired
+    HoaxSearchIndex hoaxSearchIndex;
+
+    @Autowired
+    UserStatsReconciler userStatsReconciler;
+
+    @Autowired
+    AttachmentProcessor attachmentProcessor;
+
     @PersistenceUnit
     private EntityManagerFactory entityManagerFactory;
 
+    @LocalServerPort
+    int port;
+
     @BeforeEach
     public void before() throws IOException {
         fileAttachmentRepository.deleteAll();
         hoaxRepository.deleteAll();
         userRepository.deleteAll();
         FileUtils.cleanDirectory(new File(appConfiguration.getFullAttachmentsPath()));
+        hoaxSearchIndex.rebuild();
     }
 
     @Test
@@ -192,7 +223,7 @@ public class HoaxControllerTest {
     public void postHoax_whenHoaxIsValidAndUserIsAuthorized_fileAttachmentHoaxRelationIsUpdatedInDatabase() throws IOException {
         var user = userService.save(createValidUser("user1"));
         var multipartFile = createFile();
-        var savedFile = fileService.saveAttachment(multipartFile);
+        var savedFile = fileService.saveAttachment(multipartFile, user);
 
         var hoax = createValidHoax();
         hoax.setAttachment(savedFile);
@@ -210,7 +241,7 @@ public class HoaxControllerTest {
     public void postHoax_whenHoaxIsValidAndUserIsAuthorized_hoaxFileAttachmentRelationsIsUpdatedInDatabase() throws IOException {
         var user = userService.save(createValidUser("user1"));
         var multipartFile = createFile();
-        var savedFile = fileService.saveAttachment(multipartFile);
+        var savedFile = fileService.saveAttachment(multipartFile, user);
 
         var hoax = createValidHoax();
         hoax.setAttachment(savedFile);
@@ -228,7 +259,7 @@ public class HoaxControllerTest {
     public void postHoax_whenHoaxIsValidAndUserIsAuthorized_receiveHoaxVMWithAttachment() throws IOException {
         var user = userService.save(createValidUser("user1"));
         var multipartFile = createFile();
-        var savedFile = fileService.saveAttachment(multipartFile);
+        var savedFile = fileService.saveAttachment(multipartFile, user);
 
         var hoax = createValidHoax();
         hoax.setAttachment(savedFile);
@@ -238,6 +269,121 @@ public class HoaxControllerTest {
                 .value(hoaxVM -> assertThat(hoaxVM.getAttachment().getName()).isEqualTo(savedFile.getName()));
     }
 
+    @Test
+    public void postHoaxBatch_whenHoaxesAreValidAndUserIsAuthorized_receiveOk() {
+        var user = userService.save(createValidUser("user1"));
+
+        postHoaxBatch(List.of(createValidHoax(), createValidHoax()), user.getUsername())
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void postHoaxBatch_whenHoaxesAreValidAndUserIsNotAuthorized_receiveUnauthorized() {
+        postHoaxBatch(List.of(createValidHoax()), null)
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    public void postHoaxBatch_whenHoaxesAreValidAndUserIsAuthorized_hoaxesSavedToDb() {
+        var user = userService.save(createValidUser("user1"));
+
+        postHoaxBatch(List.of(createValidHoax(), createValidHoax(), createValidHoax()), user.getUsername());
+
+        assertThat(hoaxRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    public void postHoaxBatch_whenHoaxesAreValidAndUserIsAuthorized_receiveListOfHoaxVM() {
+        var user = userService.save(createValidUser("user1"));
+
+        postHoaxBatch(List.of(createValidHoax(), createValidHoax()), user.getUsername())
+                .expectBody(new ParameterizedTypeReference<List<HoaxVM>>() {
+                })
+                .value(hoaxVMs -> {
+                    assertThat(hoaxVMs.size()).isEqualTo(2);
+                    assertThat(hoaxVMs.get(0).getUser().getUsername()).isEqualTo(user.getUsername());
+                });
+    }
+
+    @Test
+    public void postHoaxBatch_whenOneHoaxIsInvalid_receiveBadRequestAndNothingIsSaved() {
+        var user = userService.save(createValidUser("user1"));
+
+        postHoaxBatch(List.of(createValidHoax(), new Hoax()), user.getUsername())
+                .expectStatus().isBadRequest();
+
+        assertThat(hoaxRepository.count()).isEqualTo(0);
+    }
+
+    @Test
+    public void postHoaxBatch_whenOneHoaxIsInvalid_receiveApiErrorWithIndexedField() {
+        var user = userService.save(createValidUser("user1"));
+
+        postHoaxBatch(List.of(createValidHoax(), new Hoax()), user.getUsername())
+                .expectBody(ApiError.class)
+                .value(apiError -> assertThat(apiError.getValidationErrors().get("hoaxes[1].content")).isNotNull());
+    }
+
+    @Test
+    public void postHoaxBatch_whenBatchIsEmpty_receiveBadRequest() {
+        var user = userService.save(createValidUser("user1"));
+
+        postHoaxBatch(List.of(), user.getUsername())
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void postHoaxBatch_whenBatchExceedsMaxSize_receiveBadRequest() {
+        var user = userService.save(createValidUser("user1"));
+        var hoaxes = IntStream.rangeClosed(0, HoaxController.MAX_BATCH_SIZE)
+                .mapToObj(i -> createValidHoax())
+                .collect(Collectors.toList());
+
+        postHoaxBatch(hoaxes, user.getUsername())
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void postHoaxBatch_whenHoaxHasAttachment_fileAttachmentHoaxRelationIsUpdatedInDatabase() throws IOException {
+        var user = userService.save(createValidUser("user1"));
+        var savedFile = fileService.saveAttachment(createFile(), user);
+
+        var hoax = createValidHoax();
+        hoax.setAttachment(savedFile);
+
+        postHoaxBatch(List.of(createValidHoax(), hoax), user.getUsername());
+
+        var fileAttachmentInDb = fileAttachmentRepository.findAll().get(0);
+        assertThat(fileAttachmentInDb.getHoax()).isNotNull();
+    }
+
+    @Test
+    public void postHoaxBatch_whenAttachmentDoesNotExist_receiveBadRequestAndNothingIsSaved() {
+        var user = userService.save(createValidUser("user1"));
+        var attachment = new FileAttachment();
+        attachment.setId(123456);
+        var hoax = createValidHoax();
+        hoax.setAttachment(attachment);
+
+        postHoaxBatch(List.of(createValidHoax(), hoax), user.getUsername())
+                .expectStatus().isBadRequest();
+        assertThat(hoaxRepository.count()).isEqualTo(0);
+    }
+
+    @Test
+    public void postHoaxBatch_whenAttachmentIsUsedTwice_receiveBadRequestAndNothingIsSaved() throws IOException {
+        var user = userService.save(createValidUser("user1"));
+        var savedFile = fileService.saveAttachment(createFile(), user);
+        var first = createValidHoax();
+        first.setAttachment(savedFile);
+        var second = createValidHoax();
+        second.setAttachment(savedFile);
+
+        postHoaxBatch(List.of(first, second), user.getUsername())
+                .expectStatus().isBadRequest();
+        assertThat(hoaxRepository.count()).isEqualTo(0);
+    }
+
     @Test
     public void getHoaxes_whenThereAreNoHoaxes_receiveOk() {
         webTestClient.get()
@@ -282,6 +428,169 @@ public class HoaxControllerTest {
                 .value(page -> assertThat(page.getContent().get(0).getUser().getUsername()).isEqualTo(user.getUsername()));
     }
 
+    @Test
+    public void getHoaxes_whenThereAreHoaxes_receivePageWithoutPageableAndSort() {
+        var user = userService.save(createValidUser("user1"));
+        hoaxService.save(user, createValidHoax());
+
+        webTestClient.get()
+                .uri(API_1_0_HOAXES)
+                .exchange()
+                .expectBody(new ParameterizedTypeReference<Map<String, Object>>() {
+                })
+                .value(page -> assertThat(page).doesNotContainKeys("pageable", "sort", "empty")
+                        .containsEntry("totalElements", 1));
+    }
+
+    @Test
+    public void getHoaxes_whenCborIsAccepted_receivePageWithHoaxVMAsCbor() throws IOException {
+        var user = userService.save(createValidUser("user1"));
+        var hoax = hoaxService.save(user, createValidHoax());
+
+        var body = webTestClient.get()
+                .uri(API_1_0_HOAXES)
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        var page = new CBORMapper().readValue(body, new TypeReference<TestPage<HoaxVM>>() {
+        });
+        assertThat(page.getContent().get(0).getId()).isEqualTo(hoax.getId());
+        assertThat(page.getContent().get(0).getUser().getUsername()).isEqualTo("user1");
+    }
+
+    @Test
+    public void getHoaxes_whenAnyMediaTypeIsAccepted_receiveJson() {
+        webTestClient.get()
+                .uri(API_1_0_HOAXES)
+                .accept(MediaType.ALL)
+                .exchange()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    public void getHoaxes_whenGzipIsAccepted_receiveCompressedResponse() throws Exception {
+        var user = userService.save(createValidUser("user1"));
+        IntStream.rangeClosed(1, 10).forEach(i -> hoaxService.save(user, createValidHoax()));
+
+        // WebTestClient decompresses and drops the header, so the raw response is checked with a plain client
+        var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + API_1_0_HOAXES))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build();
+        var response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding());
+
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+    }
+
+    @Test
+    public void getHoaxes_whenETagIsUnchanged_receiveNotModified() {
+        var user = userService.save(createValidUser("user1"));
+        hoaxService.save(user, createValidHoax());
+        var eTag = getETag(API_1_0_HOAXES);
+
+        webTestClient.get()
+                .uri(API_1_0_HOAXES)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    public void getHoaxes_whenHoaxIsPostedAfterETag_receiveOk() {
+        var user = userService.save(createValidUser("user1"));
+        var eTag = getETag(API_1_0_HOAXES);
+        hoaxService.save(user, createValidHoax());
+
+        webTestClient.get()
+                .uri(API_1_0_HOAXES)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void getHoaxes_whenAttachmentOfPostedHoaxIsProcessedAfterETag_receiveOk() throws Exception {
+        var user = userService.save(createValidUser("user1"));
+        var attachment = new FileAttachment();
+        attachment.setName("processing-attachment");
+        attachment.setDate(new Date());
+        attachment.setStatus(FileAttachment.Status.PROCESSING);
+        attachment.setOwnerId(user.getId());
+        attachment = fileAttachmentRepository.save(attachment);
+        var hoax = createValidHoax();
+        hoax.setAttachment(attachment);
+        hoaxService.save(user, hoax);
+        var feedETag = getETag(API_1_0_HOAXES);
+        var userETag = getETag(API_1_0_USERS + "/user1/hoaxes");
+
+        var spooledFile = Files.createTempFile("hoaxify-test", ".upload");
+        Files.write(spooledFile, FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile()));
+        attachmentProcessor.submit(attachment, spooledFile);
+        awaitStatus(attachment.getId(), FileAttachment.Status.READY);
+
+        webTestClient.get()
+                .uri(API_1_0_HOAXES)
+                .ifNoneMatch(feedETag)
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.get()
+                .uri(API_1_0_USERS + "/user1/hoaxes")
+                .ifNoneMatch(userETag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void getHoaxes_receiveVaryAccept() {
+        var vary = webTestClient.get()
+                .uri(API_1_0_HOAXES)
+                .exchange()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getVary();
+
+        assertThat(vary).anyMatch(HttpHeaders.ACCEPT::equalsIgnoreCase);
+    }
+
+    @Test
+    public void getHoaxesOfUser_whenUserNotExistsAndAnyETagMatches_receiveNotFound() {
+        webTestClient.get()
+                .uri(API_1_0_USERS + "/unknown-user/hoaxes")
+                .ifNoneMatch("*")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getHoaxes_whenThereAreHoaxes_receiveLastModifiedOfLatestHoax() {
+        var user = userService.save(createValidUser("user1"));
+        var hoax = hoaxService.save(user, createValidHoax());
+
+        webTestClient.get()
+                .uri(API_1_0_HOAXES)
+                .exchange()
+                .expectHeader().lastModified(hoax.getTimestamp().getTime() / 1000 * 1000);
+    }
+
+    @Test
+    public void getHoaxesOfUser_whenOnlyOtherUserPostedAfterETag_receiveNotModified() {
+        var user1 = userService.save(createValidUser("user1"));
+        var user2 = userService.save(createValidUser("user2"));
+        hoaxService.save(user1, createValidHoax());
+        var eTag = getETag(API_1_0_USERS + "/user1/hoaxes");
+        hoaxService.save(user2, createValidHoax());
+
+        webTestClient.get()
+                .uri(API_1_0_USERS + "/user1/hoaxes")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
     @Test
     public void getHoaxesOfUser_whenUserExists_receiveOk() {
         var user = userService.save(createValidUser("user1"));
@@ -354,6 +663,23 @@ public class HoaxControllerTest {
                 .value(page -> assertThat(page.getTotalElements()).isEqualTo(5));
     }
 
+    @Test
+    public void getHoaxesOfUser_afterUserIsUpdated_receiveHoaxVMWithUpdatedDisplayName() {
+        var user = userService.save(createValidUser("user1"));
+        hoaxService.save(user, createValidHoax());
+        getHoaxesOfUser(user.getUsername());
+
+        var userUpdate = new UserUpdateVM();
+        userUpdate.setDisplayName("updated-display");
+        userService.update(user.getId(), userUpdate);
+
+        getHoaxesOfUser(user.getUsername())
+                .expectBody(new ParameterizedTypeReference<TestPage<HoaxVM>>() {
+                })
+                .value(page -> assertThat(page.getContent().get(0).getUser().getDisplayName())
+                        .isEqualTo("updated-display"));
+    }
+
     @Test
     public void getOldHoaxes_whenThereAreNoHoaxes_receiveOk() {
         getOldHoaxes(5)
@@ -597,11 +923,29 @@ public class HoaxControllerTest {
     }
 
     @Test
-    public void deleteHoax_whenHoaxNotExist_receiveForbidden() {
+    public void deleteHoax_whenHoaxNotExist_receiveNotFound() {
         var user = userService.save(createValidUser("user1"));
 
         deleteHoax(5, user.getUsername())
-                .expectStatus().isForbidden();
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void deleteHoax_whenHoaxIsOwnedByAnotherUser_hoaxAndAttachmentKept() throws IOException {
+        var otherUser = userService.save(createValidUser("user1"));
+        var owner = userService.save(createValidUser("user2"));
+
+        var savedFile = fileService.saveAttachment(createFile(), owner);
+        var hoax = createValidHoax();
+        hoax.setAttachment(savedFile);
+        hoaxService.save(owner, hoax);
+
+        deleteHoax(hoax.getId(), otherUser.getUsername());
+
+        assertThat(hoaxRepository.findById(hoax.getId())).isPresent();
+        assertThat(fileAttachmentRepository.findById(savedFile.getId())).isPresent();
+        var fileOnDisk = new File(appConfiguration.getFullAttachmentsPath() + "/" + shardedPath(savedFile.getName()));
+        assertThat(fileOnDisk.exists()).isTrue();
     }
 
     @Test
@@ -609,7 +953,7 @@ public class HoaxControllerTest {
         var user = userService.save(createValidUser("user1"));
 
         var multipartFile = createFile();
-        var savedFile = fileService.saveAttachment(multipartFile);
+        var savedFile = fileService.saveAttachment(multipartFile, user);
 
         var hoax = createValidHoax();
         hoax.setAttachment(savedFile);
@@ -632,7 +976,7 @@ public class HoaxControllerTest {
         var user = userService.save(createValidUser("user1"));
 
         var multipartFile = createFile();
-        var savedFile = fileService.saveAttachment(multipartFile);
+        var savedFile = fileService.saveAttachment(multipartFile, user);
 
         var hoax = createValidHoax();
         hoax.setAttachment(savedFile);
@@ -645,10 +989,237 @@ public class HoaxControllerTest {
         var hoaxId = Objects.requireNonNull(response).getId();
         deleteHoax(hoaxId, user.getUsername());
 
-        var fileOnDisk = new File(appConfiguration.getFullAttachmentsPath() + "/" + savedFile.getName());
+        var fileOnDisk = new File(appConfiguration.getFullAttachmentsPath() + "/" + shardedPath(savedFile.getName()));
         assertThat(fileOnDisk.exists()).isFalse();
     }
 
+    @Test
+    public void searchHoaxes_withWordInContent_receivePageWithMatchingHoaxesOnly() {
+        var user = userService.save(createValidUser("user1"));
+        var matching = hoaxService.save(user, createHoax("the quick brown fox jumps"));
+        hoaxService.save(user, createHoax("a lazy dog sleeps all day"));
+
+        searchHoaxes("FOX")
+                .expectBody(new ParameterizedTypeReference<TestPage<HoaxVM>>() {
+                })
+                .value(page -> {
+                    assertThat(page.getTotalElements()).isEqualTo(1);
+                    assertThat(page.getContent().get(0).getId()).isEqualTo(matching.getId());
+                });
+    }
+
+    @Test
+    public void searchHoaxes_withSeveralWords_receiveHoaxesContainingAllOfThem() {
+        var user = userService.save(createValidUser("user1"));
+        hoaxService.save(user, createHoax("the quick brown fox jumps"));
+        hoaxService.save(user, createHoax("the quick brown dog sleeps"));
+
+        searchHoaxes("quick fox")
+                .expectBody(new ParameterizedTypeReference<TestPage<HoaxVM>>() {
+                })
+                .value(page -> assertThat(page.getTotalElements()).isEqualTo(1));
+    }
+
+    @Test
+    public void searchHoaxes_withPageSize_receivePagedResult() {
+        var user = userService.save(createValidUser("user1"));
+        IntStream.rangeClosed(1, 5).forEach(i -> hoaxService.save(user, createValidHoax()));
+
+        webTestClient.get()
+                .uri(API_1_0_HOAXES + "/search?q=content&page=1&size=2")
+                .exchange()
+                .expectBody(new ParameterizedTypeReference<TestPage<HoaxVM>>() {
+                })
+                .value(page -> {
+                    assertThat(page.getTotalElements()).isEqualTo(5);
+                    assertThat(page.getContent()).hasSize(2);
+                });
+    }
+
+    @Test
+    public void searchHoaxes_afterHoaxIsDeleted_hoaxNotFound() {
+        var user = userService.save(createValidUser("user1"));
+        var hoax = hoaxService.save(user, createHoax("the quick brown fox jumps"));
+
+        deleteHoax(hoax.getId(), user.getUsername()).expectStatus().isOk();
+
+        searchHoaxes("fox")
+                .expectBody(new ParameterizedTypeReference<TestPage<HoaxVM>>() {
+                })
+                .value(page -> assertThat(page.getTotalElements()).isZero());
+    }
+
+    @Test
+    public void searchHoaxes_afterRebuild_findsHoaxesSavedPastTheIndex() throws IOException {
+        var user = userService.save(createValidUser("user1"));
+        var hoax = createHoax("the quick brown fox jumps");
+        hoax.setUser(user);
+        hoax.setTimestamp(new Date());
+        hoaxRepository.save(hoax);
+
+        hoaxSearchIndex.rebuild();
+
+        searchHoaxes("fox")
+                .expectBody(new ParameterizedTypeReference<TestPage<HoaxVM>>() {
+                })
+                .value(page -> assertThat(page.getTotalElements()).isEqualTo(1));
+    }
+
+    @Test
+    public void searchHoaxes_afterRebuild_hoaxDeletedPastTheIndexNotFoundAndIndexedHoaxFoundOnce() throws IOException {
+        var user = userService.save(createValidUser("user1"));
+        hoaxService.save(user, createHoax("the quick brown fox jumps"));
+        var deleted = hoaxService.save(user, createHoax("the lazy fox sleeps"));
+        hoaxRepository.deleteById(deleted.getId());
+
+        hoaxSearchIndex.rebuild();
+
+        searchHoaxes("fox")
+                .expectBody(new ParameterizedTypeReference<TestPage<HoaxVM>>() {
+                })
+                .value(page -> assertThat(page.getTotalElements()).isEqualTo(1));
+    }
+
+    @Test
+    public void searchHoaxes_withoutQuery_receiveBadRequest() {
+        webTestClient.get()
+                .uri(API_1_0_HOAXES + "/search")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void postHoax_whenHoaxIsPosted_userStatsUpdated() throws IOException {
+        var user = userService.save(createValidUser("user1"));
+        var hoax = createValidHoax();
+        hoax.setAttachment(fileService.saveAttachment(createFile(), user));
+
+        postHoax(hoax, user.getUsername());
+        postHoaxBatch(List.of(createValidHoax(), createValidHoax()), user.getUsername());
+
+        var userVM = getUserVM(user.getUsername());
+        assertThat(userVM.getHoaxCount()).isEqualTo(3);
+        assertThat(userVM.getAttachmentCount()).isEqualTo(1);
+        assertThat(userVM.getLastHoaxAt()).isEqualTo(hoaxRepository.findAll().get(2).getTimestamp());
+    }
+
+    @Test
+    public void deleteHoax_whenHoaxHasAttachment_userStatsUpdated() throws IOException {
+        var user = userService.save(createValidUser("user1"));
+        var first = hoaxService.save(user, createValidHoax());
+        var hoax = createValidHoax();
+        hoax.setAttachment(fileService.saveAttachment(createFile(), user));
+        hoaxService.save(user, hoax);
+
+        deleteHoax(hoax.getId(), user.getUsername());
+
+        var userVM = getUserVM(user.getUsername());
+        assertThat(userVM.getHoaxCount()).isEqualTo(1);
+        assertThat(userVM.getAttachmentCount()).isEqualTo(0);
+        assertThat(userVM.getLastHoaxAt()).isEqualTo(first.getTimestamp());
+    }
+
+    @Test
+    public void getHoaxes_whenThereAreHoaxes_receiveUserWithoutStats() {
+        var user = userService.save(createValidUser("user1"));
+        hoaxService.save(user, createValidHoax());
+
+        webTestClient.get()
+                .uri(API_1_0_HOAXES)
+                .exchange()
+                .expectBody(String.class)
+                .value(body -> assertThat(body).doesNotContain("hoaxCount"));
+    }
+
+    @Test
+    public void reconcile_whenStatsHaveDrifted_statsRepaired() {
+        var user = userService.save(createValidUser("user1"));
+        userService.save(createValidUser("user2"));
+        var hoax = createValidHoax();
+        hoax.setTimestamp(new Date());
+        hoax.setUser(user);
+        hoaxRepository.save(hoax);
+
+        assertThat(userStatsReconciler.reconcile()).isEqualTo(1);
+
+        var userVM = getUserVM(user.getUsername());
+        assertThat(userVM.getHoaxCount()).isEqualTo(1);
+        assertThat(userVM.getLastHoaxAt()).isEqualTo(hoax.getTimestamp());
+        assertThat(userStatsReconciler.reconcile()).isEqualTo(0);
+    }
+
+    @Test
+    public void reconcile_whenStatsHaveDrifted_userETagChanges() {
+        var user = userService.save(createValidUser("user1"));
+        var eTag = webTestClient.get()
+                .uri(API_1_0_USERS + "/" + user.getUsername())
+                .exchange()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        var hoax = createValidHoax();
+        hoax.setTimestamp(new Date());
+        hoax.setUser(user);
+        hoaxRepository.save(hoax);
+
+        userStatsReconciler.reconcile();
+
+        webTestClient.get()
+                .uri(API_1_0_USERS + "/" + user.getUsername())
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserVM.class)
+                .value(userVM -> assertThat(userVM.getHoaxCount()).isEqualTo(1));
+    }
+
+    private UserVM getUserVM(String username) {
+        return webTestClient.get()
+                .uri(API_1_0_USERS + "/" + username)
+                .exchange()
+                .expectBody(UserVM.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private WebTestClient.ResponseSpec searchHoaxes(String text) {
+        return webTestClient.get()
+                .uri(API_1_0_HOAXES + "/search?q={q}", text)
+                .exchange();
+    }
+
+    private static Hoax createHoax(String content) {
+        var hoax = createValidHoax();
+        hoax.setContent(content);
+        return hoax;
+    }
+
+    private void awaitStatus(long attachmentId, FileAttachment.Status status) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (fileAttachmentRepository.findById(attachmentId).orElseThrow().getStatus() == status) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Attachment " + attachmentId + " did not become " + status);
+    }
+
+    private String getETag(String uri) {
+        return webTestClient.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+    }
+
+    private WebTestClient.ResponseSpec getHoaxesOfUser(String username) {
+        return webTestClient.get()
+                .uri(API_1_0_USERS + "/{username}/hoaxes", username)
+                .exchange();
+    }
+
     private WebTestClient.ResponseSpec deleteHoax(long hoaxId, String loggedInUsername) {
         var clientBuilder = webTestClient.delete()
                 .uri(API_1_0_HOAXES + "/" + hoaxId);
@@ -731,6 +1302,19 @@ public class HoaxControllerTest {
                 .exchange();
     }
 
+    private WebTestClient.ResponseSpec postHoaxBatch(List<Hoax> hoaxes, String loggedInUsername) {
+        var clientBuilder = webTestClient.post()
+                .uri(API_1_0_HOAXES + "/batch");
+
+        if (loggedInUsername != null) {
+            clientBuilder.headers(httpHeaders -> httpHeaders.setBasicAuth(loggedInUsername, TEST_PASSWORD));
+        }
+
+        return clientBuilder
+                .bodyValue(hoaxes)
+                .exchange();
+    }
+
     private MultipartFile createFile() throws IOException {
         var imageResource = new ClassPathResource("profile.png");
         return new MockMultipartFile(
@@ -0,0 +1,159 @@
+package no.javatec.hoaxify.hoax;
+
+import no.javatec.hoaxify.file.FileAttachmentRepository;
+import no.javatec.hoaxify.file.FileService;
+import no.javatec.hoaxify.hoax.vm.HoaxVM;
+import no.javatec.hoaxify.user.UserRepository;
+import no.javatec.hoaxify.user.UserService;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static no.javatec.hoaxify.TestUtils.createValidHoax;
+import static no.javatec.hoaxify.TestUtils.createValidUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class HoaxFeedControllerTest {
+
+    private static final String API_1_0_STREAM = "/api/1.0/stream";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    HoaxRepository hoaxRepository;
+
+    @Autowired
+    FileAttachmentRepository fileAttachmentRepository;
+
+    @Autowired
+    FileService fileService;
+
+    @Autowired
+    HoaxService hoaxService;
+
+    @BeforeEach
+    public void before() {
+        fileAttachmentRepository.deleteAll();
+        hoaxRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void getHoaxes_whenThereAreNoHoaxes_receiveEmptyStream() {
+        getStream("/hoaxes")
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(HoaxVM.class).hasSize(0);
+    }
+
+    @Test
+    public void getHoaxes_whenThereAreHoaxes_receivePageOfHoaxVMNewestFirst() {
+        var user = userService.save(createValidUser("user1"));
+        var ids = IntStream.range(0, 3)
+                .mapToObj(i -> hoaxService.save(user, createValidHoax()).getId())
+                .collect(Collectors.toList());
+
+        getStream("/hoaxes?page=0&size=2&sort=id,desc")
+                .expectBodyList(HoaxVM.class)
+                .value(hoaxes -> {
+                    assertThat(hoaxes).extracting(HoaxVM::getId).containsExactly(ids.get(2), ids.get(1));
+                    assertThat(hoaxes.get(0).getUser().getUsername()).isEqualTo("user1");
+                    assertThat(hoaxes.get(0).getDate()).isPositive();
+                });
+    }
+
+    @Test
+    public void getHoaxes_whenHoaxHasAttachment_receiveHoaxVMWithAttachment() throws IOException {
+        var user = userService.save(createValidUser("user1"));
+        var attachment = fileService.saveAttachment(new MockMultipartFile("profile.png",
+                FileUtils.readFileToByteArray(new ClassPathResource("profile.png").getFile())), user);
+        var hoax = createValidHoax();
+        hoax.setAttachment(attachment);
+        hoaxService.save(user, hoax);
+
+        getStream("/hoaxes")
+                .expectBodyList(HoaxVM.class)
+                .value(hoaxes -> assertThat(hoaxes.get(0).getAttachment().getName()).isEqualTo(attachment.getName()));
+        fileService.deleteAttachmentImage(attachment.getName());
+    }
+
+    @Test
+    public void getHoaxesOfUser_whenUserNotExists_receiveNotFound() {
+        getStream("/users/unknown-user/hoaxes")
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getHoaxesOfUser_whenMultipleUsersHaveHoaxes_receiveOnlyHoaxesOfUser() {
+        var user1 = userService.save(createValidUser("user1"));
+        var user2 = userService.save(createValidUser("user2"));
+        hoaxService.save(user1, createValidHoax());
+        hoaxService.save(user2, createValidHoax());
+        hoaxService.save(user2, createValidHoax());
+
+        getStream("/users/user2/hoaxes")
+                .expectBodyList(HoaxVM.class)
+                .value(hoaxes -> assertThat(hoaxes).extracting(hoaxVM -> hoaxVM.getUser().getUsername())
+                        .containsOnly("user2").hasSize(2));
+    }
+
+    @Test
+    public void getOldHoaxes_whenThereAreHoaxes_receiveHoaxesBeforeProvidedId() {
+        var user = userService.save(createValidUser("user1"));
+        var ids = IntStream.range(0, 4)
+                .mapToObj(i -> hoaxService.save(user, createValidHoax()).getId())
+                .collect(Collectors.toList());
+
+        getStream("/hoaxes/" + ids.get(3) + "?direction=before&page=0&size=5&sort=id,desc")
+                .expectBodyList(HoaxVM.class)
+                .value(hoaxes -> assertThat(hoaxes).extracting(HoaxVM::getId)
+                        .containsExactly(ids.get(2), ids.get(1), ids.get(0)));
+    }
+
+    @Test
+    public void getNewHoaxesOfUser_whenUserHasHoaxes_receiveAllHoaxesAfterProvidedId() {
+        var user1 = userService.save(createValidUser("user1"));
+        var user2 = userService.save(createValidUser("user2"));
+        var first = hoaxService.save(user1, createValidHoax());
+        hoaxService.save(user2, createValidHoax());
+        var ids = IntStream.range(0, 12)
+                .mapToObj(i -> hoaxService.save(user1, createValidHoax()).getId())
+                .collect(Collectors.toList());
+
+        getStream("/users/user1/hoaxes/" + first.getId() + "?direction=after&sort=id,desc")
+                .expectBodyList(HoaxVM.class)
+                .value(hoaxes -> {
+                    assertThat(hoaxes).hasSize(12);
+                    assertThat(hoaxes.get(0).getId()).isEqualTo(ids.get(11));
+                });
+    }
+
+    private WebTestClient.ResponseSpec getStream(String path) {
+        return webTestClient.get()
+                .uri(API_1_0_STREAM + path)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange();
+    }
+}
@@ -0,0 +1,83 @@
+package no.javatec.hoaxify.hoax;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import no.javatec.hoaxify.configuration.AppConfiguration;
+import no.javatec.hoaxify.file.FileAttachment;
+import no.javatec.hoaxify.hoax.vm.HoaxVM;
+import no.javatec.hoaxify.user.User;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Serializes the same hot feed page over and over, with and without {@link HoaxJsonCache}, and prints the CPU time
+ * spent per page. Run the main method with the test classpath, it is not part of the test suite.
+ */
+public class HoaxJsonCacheBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        var objectMapper = new ObjectMapper();
+        var hoaxJsonCache = new HoaxJsonCache(objectMapper, new AppConfiguration());
+        var hoaxes = createPage(10);
+
+        for (int round = 0; round < 3; round++) {
+            var plain = cpuNanosPerPage(objectMapper, hoaxes, HoaxVM::new);
+            var cached = cpuNanosPerPage(objectMapper, hoaxes, hoaxJsonCache::toHoaxVM);
+            System.out.printf("page of %d hoaxes: HoaxVM %.1f us, cached fragments %.1f us, %.0f%% less CPU%n",
+                    hoaxes.size(), plain / 1000.0, cached / 1000.0, 100.0 * (plain - cached) / plain);
+        }
+    }
+
+    private static double cpuNanosPerPage(ObjectMapper objectMapper, List<Hoax> hoaxes,
+                                          Function<Hoax, HoaxVM> toHoaxVM) throws Exception {
+        var threadMXBean = ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            writePage(objectMapper, hoaxes, toHoaxVM);
+        }
+        var start = threadMXBean.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            writePage(objectMapper, hoaxes, toHoaxVM);
+        }
+        return (double) (threadMXBean.getCurrentThreadCpuTime() - start) / ITERATIONS;
+    }
+
+    // mirrors HoaxController: entities are mapped to view models for every request, then the page is written
+    private static void writePage(ObjectMapper objectMapper, List<Hoax> hoaxes, Function<Hoax, HoaxVM> toHoaxVM)
+            throws Exception {
+        var page = new PageImpl<>(hoaxes, PageRequest.of(0, hoaxes.size()), 1000).map(toHoaxVM);
+        objectMapper.writeValue(OutputStream.nullOutputStream(), page);
+    }
+
+    private static List<Hoax> createPage(int size) {
+        return LongStream.rangeClosed(1, size).mapToObj(id -> {
+            var user = new User();
+            user.setId(id % 3);
+            user.setUsername("user" + id % 3);
+            user.setDisplayName("Display Name " + id % 3);
+            user.setImage("d2f0bd1bd8f94e1d8dc4b4e8f1c1b3a9");
+
+            var hoax = new Hoax();
+            hoax.setId(id);
+            hoax.setContent("A hoax with some \"quoted\" text, an emoji 😀 and enough content to matter. ".repeat(4));
+            hoax.setTimestamp(new Date());
+            hoax.setUser(user);
+            if (id % 2 == 0) {
+                var attachment = new FileAttachment();
+                attachment.setName("5a1e0c4f2b7d4c1f9e3a8b6d0f2c4e7a");
+                attachment.setFileType("image/png");
+                hoax.setAttachment(attachment);
+            }
+            return hoax;
+        }).collect(Collectors.toList());
+    }
+}
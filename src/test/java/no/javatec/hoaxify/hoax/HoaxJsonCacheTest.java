@@ -0,0 +1,117 @@
+package no.javatec.hoaxify.hoax;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import no.javatec.hoaxify.configuration.AppConfiguration;
+import no.javatec.hoaxify.file.FileAttachment;
+import no.javatec.hoaxify.hoax.vm.HoaxVM;
+import no.javatec.hoaxify.hoax.vm.PrecomputedHoaxVM;
+import no.javatec.hoaxify.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static no.javatec.hoaxify.TestUtils.createValidHoax;
+import static no.javatec.hoaxify.TestUtils.createValidUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HoaxJsonCacheTest {
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    HoaxJsonCache hoaxJsonCache;
+
+    @BeforeEach
+    public void init() {
+        var appConfiguration = new AppConfiguration();
+        appConfiguration.setHoaxJsonCacheSize(2);
+        hoaxJsonCache = new HoaxJsonCache(objectMapper, appConfiguration);
+    }
+
+    @Test
+    public void toHoaxVM_writesSameJsonAsHoaxVM() throws Exception {
+        var hoax = createHoax(1, createUser(10));
+        var attachment = new FileAttachment();
+        attachment.setName("attachment-name");
+        attachment.setFileType("image/png");
+        hoax.setAttachment(attachment);
+
+        var json = objectMapper.writeValueAsString(List.of(hoaxJsonCache.toHoaxVM(hoax)));
+
+        assertThat(json).isEqualTo(objectMapper.writeValueAsString(List.of(new HoaxVM(hoax))));
+    }
+
+    @Test
+    public void toHoaxVM_whenCalledTwice_cachesOneFragment() {
+        var hoax = createHoax(1, createUser(10));
+
+        hoaxJsonCache.toHoaxVM(hoax);
+        var second = hoaxJsonCache.toHoaxVM(hoax);
+
+        assertThat(second).isInstanceOf(PrecomputedHoaxVM.class);
+        assertThat(hoaxJsonCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void toHoaxVM_whenAttachmentIsProcessing_doesNotCache() {
+        var hoax = createHoax(1, createUser(10));
+        var attachment = new FileAttachment();
+        attachment.setStatus(FileAttachment.Status.PROCESSING);
+        hoax.setAttachment(attachment);
+
+        var hoaxVM = hoaxJsonCache.toHoaxVM(hoax);
+
+        assertThat(hoaxVM).isNotInstanceOf(PrecomputedHoaxVM.class);
+        assertThat(hoaxJsonCache.size()).isZero();
+    }
+
+    @Test
+    public void toHoaxVM_whenMoreHoaxesThanMaxSize_keepsMostRecentlyUsed() throws Exception {
+        var user = createUser(10);
+        var first = createHoax(1, user);
+        hoaxJsonCache.toHoaxVM(first);
+        hoaxJsonCache.toHoaxVM(createHoax(2, user));
+        hoaxJsonCache.toHoaxVM(first);
+        hoaxJsonCache.toHoaxVM(createHoax(3, user));
+
+        first.setContent("changed content of first hoax");
+        var json = objectMapper.writeValueAsString(hoaxJsonCache.toHoaxVM(first));
+
+        assertThat(hoaxJsonCache.size()).isEqualTo(2);
+        assertThat(json).contains("test content for the test hoax");
+    }
+
+    @Test
+    public void evictUser_removesOnlyFragmentsOfThatUser() {
+        hoaxJsonCache.toHoaxVM(createHoax(1, createUser(10)));
+        hoaxJsonCache.toHoaxVM(createHoax(2, createUser(20)));
+
+        hoaxJsonCache.evictUser(10);
+
+        assertThat(hoaxJsonCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void evict_removesFragmentOfHoax() {
+        hoaxJsonCache.toHoaxVM(createHoax(1, createUser(10)));
+
+        hoaxJsonCache.evict(1);
+
+        assertThat(hoaxJsonCache.size()).isZero();
+    }
+
+    private static User createUser(long id) {
+        var user = createValidUser("user" + id);
+        user.setId(id);
+        return user;
+    }
+
+    private static Hoax createHoax(long id, User user) {
+        var hoax = createValidHoax();
+        hoax.setId(id);
+        hoax.setTimestamp(new Date());
+        hoax.setUser(user);
+        return hoax;
+    }
+}
@@ -0,0 +1,182 @@
+package no.javatec.hoaxify.hoax;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HoaxLogTest {
+
+    private static final int SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void recover_afterAppend_returnsEntriesInOrder() throws IOException {
+        try (var log = open()) {
+            log.recover();
+            assertThat(log.append(List.of(entry(1, "first hoax"), entry(2, "second hoax ø")))).isTrue();
+        }
+
+        try (var log = open()) {
+            var recovered = log.recover();
+            assertThat(recovered.stream().map(entry -> entry.id).collect(Collectors.toList())).containsExactly(1L, 2L);
+            assertThat(recovered.get(1).content).isEqualTo("second hoax ø");
+            assertThat(recovered.get(1).username).isEqualTo("user1");
+        }
+    }
+
+    @Test
+    public void recover_afterPartlyApplied_returnsOnlyUnappliedEntries() throws IOException {
+        try (var log = open()) {
+            log.recover();
+            var first = entry(1, "first hoax");
+            log.append(List.of(first));
+            log.append(List.of(entry(2, "second hoax")));
+            log.applied(first.end);
+        }
+
+        try (var log = open()) {
+            assertThat(log.recover()).extracting(entry -> entry.id).containsExactly(2L);
+        }
+    }
+
+    @Test
+    public void applied_whenAllEntriesApplied_logStartsOver() throws IOException {
+        try (var log = open()) {
+            log.recover();
+            var entries = List.of(entry(1, "first hoax"), entry(2, "second hoax"));
+            log.append(entries);
+            log.applied(entries.get(1).end);
+            assertThat(log.size()).isEqualTo(0);
+
+            var third = entry(3, "third hoax");
+            log.append(List.of(third));
+            assertThat(third.end).isEqualTo(entries.get(0).end);
+        }
+
+        try (var log = open()) {
+            assertThat(log.recover()).extracting(entry -> entry.id).containsExactly(3L);
+        }
+    }
+
+    @Test
+    public void recover_whenLastRecordIsCorrupt_returnsEntriesBeforeIt() throws IOException {
+        int corruptAt;
+        try (var log = open()) {
+            log.recover();
+            var first = entry(1, "first hoax");
+            log.append(List.of(first, entry(2, "second hoax")));
+            corruptAt = first.end + 20;
+        }
+        try (var file = new RandomAccessFile(directory.resolve("hoaxes.log").toFile(), "rw")) {
+            file.seek(corruptAt);
+            file.write(0xff);
+        }
+
+        try (var log = open()) {
+            assertThat(log.recover()).extracting(entry -> entry.id).containsExactly(1L);
+        }
+    }
+
+    @Test
+    public void append_whenLogIsFull_appendsNothing() throws IOException {
+        try (var log = open()) {
+            log.recover();
+            var content = "a".repeat(SIZE / 2);
+
+            assertThat(log.append(List.of(entry(1, content)))).isTrue();
+            assertThat(log.append(List.of(entry(2, content)))).isFalse();
+            assertThat(log.append(List.of(entry(2, "short hoax"), entry(3, content)))).isFalse();
+        }
+
+        try (var log = open()) {
+            assertThat(log.recover()).extracting(entry -> entry.id).containsExactly(1L);
+        }
+    }
+
+    @Test
+    public void append_whenEndIsReachedAfterPartlyApplied_wrapsIntoAppliedSpace() throws IOException {
+        var content = "a".repeat(SIZE / 4);
+        try (var log = open()) {
+            log.recover();
+            var second = entry(2, content);
+            log.append(List.of(entry(1, content), second, entry(3, content)));
+            log.applied(second.end);
+
+            var fourth = entry(4, content);
+            assertThat(log.append(List.of(fourth))).isTrue();
+            assertThat(fourth.end).isLessThan(second.end);
+        }
+
+        try (var log = open()) {
+            assertThat(log.recover()).extracting(entry -> entry.id).containsExactly(3L, 4L);
+        }
+    }
+
+    @Test
+    public void append_whenWrappedIntoUnappliedRecords_appendsNothing() throws IOException {
+        var content = "a".repeat(SIZE / 4);
+        try (var log = open()) {
+            log.recover();
+            var second = entry(2, content);
+            log.append(List.of(entry(1, content), second, entry(3, content)));
+            log.applied(second.end);
+            log.append(List.of(entry(4, content)));
+
+            assertThat(log.append(List.of(entry(5, content)))).isFalse();
+        }
+
+        try (var log = open()) {
+            assertThat(log.recover()).extracting(entry -> entry.id).containsExactly(3L, 4L);
+        }
+    }
+
+    @Test
+    public void applied_pastTheWrap_freesTheSpaceBeforeIt() throws IOException {
+        var content = "a".repeat(SIZE / 4);
+        try (var log = open()) {
+            log.recover();
+            var second = entry(2, content);
+            log.append(List.of(entry(1, content), second, entry(3, content)));
+            log.applied(second.end);
+            var fourth = entry(4, content);
+            log.append(List.of(fourth, entry(5, "short hoax")));
+
+            log.applied(fourth.end);
+
+            assertThat(log.append(List.of(entry(6, content), entry(7, content)))).isTrue();
+        }
+
+        try (var log = open()) {
+            assertThat(log.recover()).extracting(entry -> entry.id).containsExactly(5L, 6L, 7L);
+        }
+    }
+
+    @Test
+    public void recover_entryWithAttachment_returnsAttachmentId() throws IOException {
+        try (var log = open()) {
+            log.recover();
+            log.append(List.of(new HoaxLog.Entry(1, 7, "user1", 1_000_000L, "hoax with attachment", 42)));
+        }
+
+        try (var log = open()) {
+            assertThat(log.recover()).extracting(entry -> entry.attachmentId).containsExactly(42L);
+        }
+    }
+
+    private HoaxLog open() throws IOException {
+        return new HoaxLog(directory.resolve("hoaxes.log"), SIZE);
+    }
+
+    private static HoaxLog.Entry entry(long id, String content) {
+        return new HoaxLog.Entry(id, 7, "user1", 1_000_000L + id, content);
+    }
+}
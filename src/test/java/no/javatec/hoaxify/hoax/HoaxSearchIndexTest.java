@@ -0,0 +1,73 @@
+package no.javatec.hoaxify.hoax;
+
+import no.javatec.hoaxify.configuration.AppConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+public class HoaxSearchIndexTest {
+
+    HoaxRepository hoaxRepository;
+
+    HoaxSearchIndex hoaxSearchIndex;
+
+    @BeforeEach
+    public void init() throws IOException {
+        hoaxRepository = Mockito.mock(HoaxRepository.class);
+        hoaxSearchIndex = new HoaxSearchIndex(new AppConfiguration(), hoaxRepository);
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        hoaxSearchIndex.destroy();
+    }
+
+    @Test
+    public void rebuild_whenHoaxIsRemovedAfterItWasRead_hoaxIsNotIndexed() throws IOException {
+        when(hoaxRepository.findByIdGreaterThanOrderById(anyLong(), any())).thenAnswer(invocation -> {
+            // deleted after the batch was read, its removal applied before the rebuild writes it
+            hoaxSearchIndex.remove(1);
+            return List.of(hoaxText(1, "deleted hoax"), hoaxText(2, "kept hoax"));
+        });
+
+        var count = hoaxSearchIndex.rebuild();
+
+        assertThat(count).isEqualTo(1);
+        assertThat(hoaxSearchIndex.search("hoax", PageRequest.of(0, 10)).getContent()).containsExactly(2L);
+    }
+
+    @Test
+    public void remove_afterRebuild_hoaxIsNotIndexed() throws IOException {
+        when(hoaxRepository.findByIdGreaterThanOrderById(anyLong(), any()))
+                .thenReturn(List.of(hoaxText(1, "first hoax"), hoaxText(2, "second hoax")));
+        hoaxSearchIndex.rebuild();
+
+        hoaxSearchIndex.remove(1);
+
+        assertThat(hoaxSearchIndex.search("hoax", PageRequest.of(0, 10)).getContent()).containsExactly(2L);
+    }
+
+    private static HoaxText hoaxText(long id, String content) {
+        return new HoaxText() {
+            @Override
+            public long getId() {
+                return id;
+            }
+
+            @Override
+            public String getContent() {
+                return content;
+            }
+        };
+    }
+}
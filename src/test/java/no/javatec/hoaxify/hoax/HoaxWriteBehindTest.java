@@ -0,0 +1,219 @@
+package no.javatec.hoaxify.hoax;
+
+import no.javatec.hoaxify.file.FileAttachment;
+import no.javatec.hoaxify.file.FileAttachmentRepository;
+import no.javatec.hoaxify.file.FileService;
+import no.javatec.hoaxify.hoax.vm.HoaxVM;
+import no.javatec.hoaxify.user.User;
+import no.javatec.hoaxify.user.UserRepository;
+import no.javatec.hoaxify.user.UserService;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static no.javatec.hoaxify.TestUtils.TEST_PASSWORD;
+import static no.javatec.hoaxify.TestUtils.createValidHoax;
+import static no.javatec.hoaxify.TestUtils.createValidUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "hoaxify.write-behind.enabled=true",
+        "hoaxify.write-behind.log-path=" + HoaxWriteBehindTest.LOG_PATH
+})
+@ActiveProfiles("test")
+public class HoaxWriteBehindTest {
+
+    static final String LOG_PATH = "target/hoaxify-hoaxes-test.log";
+    private static final String API_1_0_HOAXES = "/api/1.0/hoaxes";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    HoaxRepository hoaxRepository;
+
+    @Autowired
+    FileAttachmentRepository fileAttachmentRepository;
+
+    @Autowired
+    FileService fileService;
+
+    @BeforeAll
+    public static void deleteLog() throws IOException {
+        Files.deleteIfExists(Paths.get(LOG_PATH));
+    }
+
+    @BeforeEach
+    public void cleanup() {
+        fileAttachmentRepository.deleteAll();
+        hoaxRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    public void postHoax_whenWriteBehindIsEnabled_hoaxSavedWithAcknowledgedId() throws InterruptedException {
+        var user = userService.save(createValidUser("user1"));
+
+        var acknowledged = postHoax(createValidHoax(), user.getUsername())
+                .expectStatus().isOk()
+                .expectBody(HoaxVM.class)
+                .returnResult()
+                .getResponseBody();
+
+        var saved = awaitSaved(Objects.requireNonNull(acknowledged).getId());
+        assertThat(saved.getContent()).isEqualTo(acknowledged.getContent());
+        assertThat(saved.getTimestamp().getTime()).isEqualTo(acknowledged.getDate());
+        assertThat(saved.getUser().getId()).isEqualTo(user.getId());
+        assertThat(saved.getUser().getHoaxCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void postHoaxBatch_whenWriteBehindIsEnabled_hoaxesSavedInIdOrder() throws InterruptedException {
+        var user = userService.save(createValidUser("user1"));
+
+        var acknowledged = webTestClient.post()
+                .uri(API_1_0_HOAXES + "/batch")
+                .headers(httpHeaders -> httpHeaders.setBasicAuth(user.getUsername(), TEST_PASSWORD))
+                .bodyValue(List.of(createValidHoax(), createValidHoax(), createValidHoax()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(new ParameterizedTypeReference<List<HoaxVM>>() {
+                })
+                .returnResult()
+                .getResponseBody();
+
+        var ids = Objects.requireNonNull(acknowledged).stream().map(HoaxVM::getId).collect(Collectors.toList());
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        awaitSaved(ids.get(2));
+        assertThat(hoaxRepository.findAllById(ids)).hasSize(3);
+    }
+
+    @Test
+    public void postHoax_whenHoaxHasAttachment_hoaxSavedWithAttachmentLinked() throws IOException, InterruptedException {
+        var user = userService.save(createValidUser("user1"));
+        var savedFile = saveAttachment(user);
+        var hoax = createValidHoax();
+        hoax.setAttachment(savedFile);
+
+        var response = postHoax(hoax, user.getUsername())
+                .expectBody(HoaxVM.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(Objects.requireNonNull(response).getAttachment().getName()).isEqualTo(savedFile.getName());
+        var saved = awaitSaved(response.getId());
+        assertThat(fileAttachmentRepository.findById(savedFile.getId()).orElseThrow().getHoax().getId())
+                .isEqualTo(saved.getId());
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getAttachmentCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void postHoax_whenAttachmentDoesNotExist_receiveBadRequest() {
+        var user = userService.save(createValidUser("user1"));
+        var hoax = createValidHoax();
+        var attachment = new FileAttachment();
+        attachment.setId(123456);
+        hoax.setAttachment(attachment);
+
+        postHoax(hoax, user.getUsername()).expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void postHoax_whenAttachmentIsOfOtherUser_receiveBadRequest() throws IOException {
+        var owner = userService.save(createValidUser("user1"));
+        var user = userService.save(createValidUser("user2"));
+        var hoax = createValidHoax();
+        hoax.setAttachment(saveAttachment(owner));
+
+        postHoax(hoax, user.getUsername()).expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void postHoax_whenAttachmentIsPostedTwice_receiveBadRequestAndFirstHoaxKeepsIt()
+            throws IOException, InterruptedException {
+        var user = userService.save(createValidUser("user1"));
+        var savedFile = saveAttachment(user);
+        var first = createValidHoax();
+        first.setAttachment(savedFile);
+        var second = createValidHoax();
+        second.setAttachment(savedFile);
+
+        var acknowledged = postHoax(first, user.getUsername())
+                .expectStatus().isOk()
+                .expectBody(HoaxVM.class)
+                .returnResult()
+                .getResponseBody();
+        postHoax(second, user.getUsername()).expectStatus().isBadRequest();
+
+        var saved = awaitSaved(Objects.requireNonNull(acknowledged).getId());
+        assertThat(fileAttachmentRepository.findById(savedFile.getId()).orElseThrow().getHoax().getId())
+                .isEqualTo(saved.getId());
+        // released once saved, still not available to another hoax
+        postHoax(second, user.getUsername()).expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void postHoax_whileSavedInAnyOrder_hoaxesBecomeVisibleInIdOrder() throws InterruptedException {
+        var user = userService.save(createValidUser("user1"));
+        var ids = IntStream.range(0, 20)
+                .parallel()
+                .mapToObj(i -> Objects.requireNonNull(postHoax(createValidHoax(), user.getUsername())
+                        .expectBody(HoaxVM.class)
+                        .returnResult()
+                        .getResponseBody()).getId())
+                .sorted()
+                .collect(Collectors.toList());
+
+        awaitSaved(ids.get(ids.size() - 1));
+        assertThat(hoaxRepository.findAllById(ids)).hasSize(ids.size());
+    }
+
+    private FileAttachment saveAttachment(User owner) throws IOException {
+        var imageResource = new ClassPathResource("profile.png");
+        return fileService.saveAttachment(
+                new MockMultipartFile("profile.png", FileUtils.readFileToByteArray(imageResource.getFile())), owner);
+    }
+
+    private Hoax awaitSaved(long id) throws InterruptedException {
+        for (int attempt = 0; attempt < 50; attempt++) {
+            var hoax = hoaxRepository.findById(id);
+            if (hoax.isPresent()) {
+                return hoax.get();
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Hoax " + id + " was not saved in time");
+    }
+
+    private WebTestClient.ResponseSpec postHoax(Hoax hoax, String loggedInUsername) {
+        return webTestClient.post()
+                .uri(API_1_0_HOAXES)
+                .headers(httpHeaders -> httpHeaders.setBasicAuth(loggedInUsername, TEST_PASSWORD))
+                .bodyValue(hoax)
+                .exchange();
+    }
+}
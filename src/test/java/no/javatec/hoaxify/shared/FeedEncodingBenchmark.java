@@ -0,0 +1,104 @@
+package no.javatec.hoaxify.shared;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import no.javatec.hoaxify.file.FileAttachment;
+import no.javatec.hoaxify.hoax.Hoax;
+import no.javatec.hoaxify.hoax.vm.HoaxVM;
+import no.javatec.hoaxify.user.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode time and bytes on the wire of a feed page as JSON and as CBOR. The sizes, plain and gzipped, are printed
+ * during setup. Not part of the test suite, run with
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main FeedEncodingBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeedEncodingBenchmark {
+
+    @Param({"10", "100"})
+    public int pageSize;
+
+    private final ObjectMapper jsonMapper = new ObjectMapper().registerModule(new BlackbirdModule());
+    private final ObjectMapper cborMapper = new CBORMapper().registerModule(new BlackbirdModule());
+    private PageVM<HoaxVM> page;
+
+    @Setup
+    public void setup() throws IOException {
+        var hoaxes = LongStream.rangeClosed(1, pageSize)
+                .mapToObj(FeedEncodingBenchmark::createHoax)
+                .map(HoaxVM::new)
+                .collect(Collectors.toList());
+        page = new PageVM<>(new PageImpl<>(hoaxes, PageRequest.of(0, pageSize), 10_000));
+
+        var json = jsonMapper.writeValueAsBytes(page);
+        var cbor = cborMapper.writeValueAsBytes(page);
+        System.out.printf("%npage of %d: json %d bytes (gzip %d), cbor %d bytes (gzip %d)%n",
+                pageSize, json.length, gzip(json).length, cbor.length, gzip(cbor).length);
+    }
+
+    @Benchmark
+    public byte[] json() throws IOException {
+        return jsonMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] cbor() throws IOException {
+        return cborMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] jsonGzip() throws IOException {
+        return gzip(jsonMapper.writeValueAsBytes(page));
+    }
+
+    @Benchmark
+    public byte[] cborGzip() throws IOException {
+        return gzip(cborMapper.writeValueAsBytes(page));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        var compressed = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(bytes);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static Hoax createHoax(long id) {
+        var user = new User();
+        user.setId(id % 7);
+        user.setUsername("user" + id % 7);
+        user.setDisplayName("Display Name " + id % 7);
+        user.setImage("d2f0bd1bd8f94e1d8dc4b4e8f1c1b3a9");
+
+        var hoax = new Hoax();
+        hoax.setId(id);
+        hoax.setContent("A hoax with enough content to be a realistic feed item, written by a test user. ".repeat(2));
+        hoax.setTimestamp(new Date());
+        hoax.setUser(user);
+        if (id % 3 == 0) {
+            var attachment = new FileAttachment();
+            attachment.setName("5a1e0c4f2b7d4c1f9e3a8b6d0f2c4e7a");
+            attachment.setFileType("image/png");
+            hoax.setAttachment(attachment);
+        }
+        return hoax;
+    }
+}
@@ -0,0 +1,108 @@
+package no.javatec.hoaxify.shared;
+
+import no.javatec.hoaxify.TestUtils;
+import no.javatec.hoaxify.file.FileAttachment;
+import no.javatec.hoaxify.file.FileAttachmentRepository;
+import no.javatec.hoaxify.hoax.Hoax;
+import no.javatec.hoaxify.hoax.HoaxRepository;
+import no.javatec.hoaxify.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=no.javatec.hoaxify.shared.SqlStatementCollector")
+@ActiveProfiles("test")
+public class IndexUsageTest {
+
+    private static final String TABLE_SCAN = "tableScan";
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @Autowired
+    HoaxRepository hoaxRepository;
+
+    @Autowired
+    FileAttachmentRepository fileAttachmentRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    User user;
+
+    @BeforeEach
+    public void init() {
+        user = testEntityManager.persist(TestUtils.createValidUser());
+        for (int i = 0; i < 5; i++) {
+            var hoax = TestUtils.createValidHoax();
+            hoax.setUser(user);
+            hoax.setTimestamp(new Date());
+            testEntityManager.persist(hoax);
+
+            var attachment = new FileAttachment();
+            attachment.setName("attachment" + i);
+            attachment.setDate(new Date());
+            attachment.setHoax(hoax);
+            testEntityManager.persist(attachment);
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        SqlStatementCollector.clear();
+    }
+
+    @Test
+    public void findByUser_whenPagedByIdDesc_usesIndexOnUserId() {
+        hoaxRepository.findByUser(user, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "id")));
+
+        assertThat(planOf("from hoax")).doesNotContain(TABLE_SCAN).contains("USER_ID = ?1");
+    }
+
+    @Test
+    public void findAll_whenOlderHoaxesOfUserAreQueried_usesUserIdIdIndex() {
+        Specification<Hoax> olderHoaxesOfUser = (root, criteriaQuery, criteriaBuilder) -> criteriaBuilder.and(
+                criteriaBuilder.equal(root.get("user"), user),
+                criteriaBuilder.lessThan(root.get("id"), Long.MAX_VALUE));
+
+        hoaxRepository.findAll(olderHoaxesOfUser, PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "id")));
+
+        assertThat(planOf("from hoax")).contains("IDX_HOAX_USER_ID_ID");
+    }
+
+    @Test
+    public void findByDateBeforeAndHoaxIsNull_usesHoaxIdDateIndex() {
+        fileAttachmentRepository.findByDateBeforeAndHoaxIsNull(new Date());
+
+        assertThat(planOf("from file_attachment")).contains("IDX_FILE_ATTACHMENT_HOAX_ID_DATE");
+    }
+
+    @Test
+    public void findById_whenHoaxIsLoaded_attachmentLookupUsesHoaxIdIndex() {
+        var hoaxId = hoaxRepository.findAll().get(0).getId();
+        testEntityManager.clear();
+        SqlStatementCollector.clear();
+
+        hoaxRepository.findById(hoaxId);
+
+        assertThat(planOf("join file_attachment")).doesNotContain(TABLE_SCAN).contains("HOAX_ID = HOAX0_.ID");
+    }
+
+    private String planOf(String sqlFragment) {
+        var sql = SqlStatementCollector.statements().stream()
+                .filter(statement -> statement.startsWith("select") && statement.contains(sqlFragment))
+                .findFirst()
+                .orElseThrow();
+        var parameterCount = sql.chars().filter(c -> c == '?').count();
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, new Object[(int) parameterCount]);
+    }
+}
@@ -0,0 +1,115 @@
+package no.javatec.hoaxify.shared;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import no.javatec.hoaxify.file.FileAttachment;
+import no.javatec.hoaxify.hoax.Hoax;
+import no.javatec.hoaxify.hoax.vm.HoaxVM;
+import no.javatec.hoaxify.user.User;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Serialization of a 100 item {@code Page<HoaxVM>}, comparing the {@link PageImpl} and {@link PageVM} envelopes,
+ * reflective and Blackbird accessors, and buffering the body versus streaming it. Not part of the test suite, run with
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main PageSerializationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageSerializationBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"reflection", "blackbird"})
+    public String accessors;
+
+    private ObjectMapper objectMapper;
+    private Page<HoaxVM> page;
+    private PageVM<HoaxVM> pageVM;
+
+    @Setup
+    public void setup() {
+        objectMapper = new ObjectMapper();
+        if ("blackbird".equals(accessors)) {
+            objectMapper.registerModule(new BlackbirdModule());
+        }
+        var hoaxes = LongStream.rangeClosed(1, PAGE_SIZE)
+                .mapToObj(PageSerializationBenchmark::createHoax)
+                .map(HoaxVM::new)
+                .collect(Collectors.toList());
+        page = new PageImpl<>(hoaxes, PageRequest.of(0, PAGE_SIZE, Sort.by("id").descending()), 10_000);
+        pageVM = new PageVM<>(page);
+    }
+
+    @Benchmark
+    public byte[] pageImplBuffered() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] pageVMBuffered() throws IOException {
+        return objectMapper.writeValueAsBytes(pageVM);
+    }
+
+    @Benchmark
+    public void pageVMStreamed(Blackhole blackhole) throws IOException {
+        objectMapper.writeValue(new BlackholeOutputStream(blackhole), pageVM);
+    }
+
+    private static Hoax createHoax(long id) {
+        var user = new User();
+        user.setId(id % 7);
+        user.setUsername("user" + id % 7);
+        user.setDisplayName("Display Name " + id % 7);
+        user.setImage("d2f0bd1bd8f94e1d8dc4b4e8f1c1b3a9");
+
+        var hoax = new Hoax();
+        hoax.setId(id);
+        hoax.setContent("A hoax with enough content to be a realistic feed item, written by a test user. ".repeat(2));
+        hoax.setTimestamp(new Date());
+        hoax.setUser(user);
+        if (id % 3 == 0) {
+            var attachment = new FileAttachment();
+            attachment.setName("5a1e0c4f2b7d4c1f9e3a8b6d0f2c4e7a");
+            attachment.setFileType("image/png");
+            hoax.setAttachment(attachment);
+        }
+        return hoax;
+    }
+
+    // stands in for the servlet output stream, so the written bytes are consumed but not kept
+    private static class BlackholeOutputStream extends OutputStream {
+
+        private final Blackhole blackhole;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+            blackhole.consume(len);
+        }
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
@@ -32,6 +34,9 @@ public class LoginControllerTest {
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    PasswordEncoder passwordEncoder;
+
     @BeforeEach
     public void cleanup() {
         userRepository.deleteAll();
@@ -151,6 +156,34 @@ public class LoginControllerTest {
                 .value(map -> assertThat(map.containsKey("password")).isFalse());
     }
 
+    /**
+     * Hashes stored before the {bcrypt} prefix still match, and are rehashed on login
+     */
+    @Test
+    public void postLogin_withLegacyPasswordHash_receiveOkAndHashIsUpgraded() {
+        var user = createValidUser();
+        user.setPassword(new BCryptPasswordEncoder(4).encode(TEST_PASSWORD));
+        userRepository.save(user);
+
+        getLoginBodySpec().value(userVM -> assertThat(userVM.getUsername()).isEqualTo(TEST_USERNAME));
+
+        var inDb = userRepository.findByUsername(TEST_USERNAME);
+        assertThat(inDb.getPassword()).startsWith("{bcrypt}");
+        assertThat(passwordEncoder.matches(TEST_PASSWORD, inDb.getPassword())).isTrue();
+    }
+
+    /**
+     * A current hash is left alone
+     */
+    @Test
+    public void postLogin_withCurrentPasswordHash_hashIsNotRewritten() {
+        var userInDb = userService.save(createValidUser());
+
+        getLoginBodySpec().value(userVM -> assertThat(userVM.getUsername()).isEqualTo(TEST_USERNAME));
+
+        assertThat(userRepository.findByUsername(TEST_USERNAME).getPassword()).isEqualTo(userInDb.getPassword());
+    }
+
     private WebTestClient.BodySpec<UserVM, ?> getLoginBodySpec() {
         return webTestClient.post()
                 .uri(API_1_0_LOGIN)
@@ -1,5 +1,7 @@
 package no.javatec.hoaxify.user;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import no.javatec.hoaxify.TestPage;
 import no.javatec.hoaxify.configuration.AppConfiguration;
 import no.javatec.hoaxify.error.ApiError;
@@ -15,16 +17,19 @@ import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWeb
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.IntStream;
 
+import static no.javatec.hoaxify.file.storage.DirectorySharding.shardedPath;
 import static no.javatec.hoaxify.TestUtils.*;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -47,9 +52,13 @@ public class UserControllerTest {
     @Autowired
     AppConfiguration appConfiguration;
 
+    @Autowired
+    UserTypeahead userTypeahead;
+
     @BeforeEach
     public void cleanup() {
         userRepository.deleteAll();
+        userTypeahead.rebuild();
     }
 
     @AfterEach
@@ -261,6 +270,50 @@ public class UserControllerTest {
                         .isEqualTo("This name is in use"));
     }
 
+    @Test
+    public void getUserByUsername_whenETagIsUnchanged_receiveNotModified() {
+        userService.save(createValidUser(TEST_USERNAME));
+        var eTag = getUser(TEST_USERNAME)
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient.get()
+                .uri(API_1_0_USERS + "/{username}", TEST_USERNAME)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    public void getUserByUsername_whenUserNotExistsAndAnyETagMatches_receiveNotFound() {
+        webTestClient.get()
+                .uri(API_1_0_USERS + "/{username}", "unknown-user")
+                .ifNoneMatch("*")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void getUserByUsername_whenUserIsUpdatedAfterETag_receiveOk() {
+        var user = userService.save(createValidUser(TEST_USERNAME));
+        var eTag = getUser(TEST_USERNAME)
+                .returnResult(String.class)
+                .getResponseHeaders()
+                .getETag();
+        var userUpdate = new UserUpdateVM();
+        userUpdate.setDisplayName("updated-display");
+        userService.update(user.getId(), userUpdate);
+
+        webTestClient.get()
+                .uri(API_1_0_USERS + "/{username}", TEST_USERNAME)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(UserVM.class)
+                .value(userVM -> assertThat(userVM.getDisplayName()).isEqualTo("updated-display"));
+    }
+
     @Test
     public void getUsers_whenThereAreNoUsersInDb_receiveOk() {
         getUsers().expectStatus().isOk();
@@ -283,6 +336,33 @@ public class UserControllerTest {
                 .value(page -> assertThat(page.getTotalElements()).isEqualTo(1));
     }
 
+    @Test
+    public void getUsers_whenThereIsUserInDb_receiveCompactPageEnvelope() {
+        userRepository.save(createValidUser());
+        getUsers()
+                .expectBody(new ParameterizedTypeReference<Map<String, Object>>() {
+                })
+                .value(page -> assertThat(page.keySet()).containsExactlyInAnyOrder("content", "number", "size",
+                        "numberOfElements", "totalElements", "totalPages", "first", "last"));
+    }
+
+    @Test
+    public void getUsers_whenCborIsAccepted_receivePageWithUserVMAsCbor() throws IOException {
+        userRepository.save(createValidUser());
+        var body = webTestClient.get()
+                .uri(API_1_0_USERS)
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        var page = new CBORMapper().readValue(body, new TypeReference<TestPage<UserVM>>() {
+        });
+        assertThat(page.getContent().get(0).getUsername()).isEqualTo(TEST_USERNAME);
+    }
+
     @Test
     public void getUsers_whenThereIsUserInDb_receiveUserWithoutPassword() {
         userRepository.save(createValidUser());
@@ -488,7 +568,7 @@ public class UserControllerTest {
         putUser(user.getId(), updateUser, user.getUsername())
                 .expectBody(UserVM.class)
                 .value(userVM -> {
-                    var profilePicturePath = appConfiguration.getFullProfileImagesPath() + "/" + userVM.getImage();
+                    var profilePicturePath = appConfiguration.getFullProfileImagesPath() + "/" + shardedPath(userVM.getImage());
                     assertThat(new File(profilePicturePath).exists()).isTrue();
                 });
     }
@@ -558,6 +638,33 @@ public class UserControllerTest {
                         .isEqualTo("Only PNG and JPG files are allowed"));
     }
 
+    @Test
+    public void putUser_withValidRequestBody_incrementsVersion() {
+        var user = userService.save(createValidUser("user1"));
+
+        putUser(user.getId(), createValidUserUpdateVM(), user.getUsername());
+
+        assertThat(userRepository.findByUsername("user1").getVersion()).isEqualTo(user.getVersion() + 1);
+    }
+
+    @Test
+    public void updateUser_withStaleUser_replacesAndRemovesLatestImage() throws IOException {
+        var user = userService.save(createValidUser("user1"));
+        var staleUser = userRepository.findByUsername("user1");
+
+        var firstUpdate = createValidUserUpdateVM();
+        firstUpdate.setImage(readFileToBase64("profile.png"));
+        var firstImage = userService.update(user.getId(), firstUpdate).getImage();
+
+        var secondUpdate = createValidUserUpdateVM();
+        secondUpdate.setImage(readFileToBase64("test-jpg.jpg"));
+        var secondImage = userService.update(staleUser, secondUpdate).getImage();
+
+        assertThat(userRepository.findByUsername("user1").getImage()).isEqualTo(secondImage);
+        assertThat(new File(appConfiguration.getFullProfileImagesPath() + "/" + shardedPath(firstImage)).exists()).isFalse();
+        assertThat(new File(appConfiguration.getFullProfileImagesPath() + "/" + shardedPath(secondImage)).exists()).isTrue();
+    }
+
     @Test
     public void putUser_withValidRequestBodyWithJPGImageForUserWhoHasImage_removesOldImageFromStorage() throws IOException {
         var user = userService.save(createValidUser("user1"));
@@ -573,10 +680,68 @@ public class UserControllerTest {
 
         putUser(user.getId(), updateUser, user.getUsername());
 
-        var storedImage = new File(appConfiguration.getFullProfileImagesPath() + "/" + Objects.requireNonNull(firstResponse).getImage());
+        var storedImage = new File(appConfiguration.getFullProfileImagesPath() + "/" + shardedPath(Objects.requireNonNull(firstResponse).getImage()));
         assertThat(storedImage.exists()).isFalse();
     }
 
+    @Test
+    public void suggestUsers_withUsernamePrefixInOtherCase_receiveMatchingUsers() {
+        userService.save(createValidUser("alice1"));
+        userService.save(createValidUser("alicia"));
+        userService.save(createValidUser("bobby1"));
+
+        suggestUsers("ALI")
+                .expectBody(new ParameterizedTypeReference<List<UserVM>>() {
+                })
+                .value(users -> assertThat(users).extracting(UserVM::getUsername).containsExactly("alice1", "alicia"));
+    }
+
+    @Test
+    public void suggestUsers_withDisplayNamePrefix_receiveEachUserOnce() {
+        var user = createValidUser("display1");
+        user.setDisplayName("display-name");
+        userService.save(user);
+
+        suggestUsers("disp")
+                .expectBody(new ParameterizedTypeReference<List<UserVM>>() {
+                })
+                .value(users -> assertThat(users).extracting(UserVM::getUsername).containsExactly("display1"));
+    }
+
+    @Test
+    public void suggestUsers_withLimit_receiveAtMostLimitUsers() {
+        IntStream.rangeClosed(1, 5).forEach(i -> userService.save(createValidUser("user" + i)));
+
+        webTestClient.get()
+                .uri(API_1_0_USERS + "?q=user&limit=3")
+                .exchange()
+                .expectBody(new ParameterizedTypeReference<List<UserVM>>() {
+                })
+                .value(users -> assertThat(users).hasSize(3));
+    }
+
+    @Test
+    public void suggestUsers_afterDisplayNameIsUpdated_matchesNewNameOnly() {
+        var user = userService.save(createValidUser("user1"));
+
+        putUser(user.getId(), new UserUpdateVM("renamed"), user.getUsername()).expectStatus().isOk();
+
+        suggestUsers("renam")
+                .expectBody(new ParameterizedTypeReference<List<UserVM>>() {
+                })
+                .value(users -> assertThat(users).extracting(UserVM::getDisplayName).containsExactly("renamed"));
+        suggestUsers("test-disp")
+                .expectBody(new ParameterizedTypeReference<List<UserVM>>() {
+                })
+                .value(users -> assertThat(users).isEmpty());
+    }
+
+    private WebTestClient.ResponseSpec suggestUsers(String prefix) {
+        return webTestClient.get()
+                .uri(API_1_0_USERS + "?q={q}", prefix)
+                .exchange();
+    }
+
     private WebTestClient.ResponseSpec getUser(String username) {
         return webTestClient.get()
                 .uri(API_1_0_USERS + "/{username}", username)
@@ -0,0 +1,103 @@
+package no.javatec.hoaxify.user;
+
+import no.javatec.hoaxify.error.ConflictException;
+import no.javatec.hoaxify.file.FileService;
+import no.javatec.hoaxify.hoax.HoaxJsonCache;
+import no.javatec.hoaxify.shared.ContentVersions;
+import no.javatec.hoaxify.user.vm.UserUpdateVM;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+import static no.javatec.hoaxify.TestUtils.createValidUser;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserServiceTest {
+
+    UserRepository userRepository;
+
+    FileService fileService;
+
+    UserService userService;
+
+    @BeforeEach
+    public void init() {
+        userRepository = Mockito.mock(UserRepository.class);
+        fileService = Mockito.mock(FileService.class);
+        userService = new UserService(userRepository, Mockito.mock(PasswordEncoder.class),
+                fileService, Mockito.mock(HoaxJsonCache.class), Mockito.mock(ContentVersions.class),
+                Mockito.mock(UserTypeahead.class));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void update_whenImageIsReplaced_previousImageDeletedOnlyAfterCommit() throws IOException {
+        var synchronizations = updateImageInTransaction();
+
+        verify(fileService, never()).deleteProfileImage(any());
+        synchronizations.forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        verify(fileService).deleteProfileImage("previous-image");
+        verify(fileService, never()).deleteProfileImage("new-image");
+    }
+
+    @Test
+    public void update_whenRolledBack_newImageDeletedAndPreviousKept() throws IOException {
+        var synchronizations = updateImageInTransaction();
+
+        synchronizations.forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        verify(fileService).deleteProfileImage("new-image");
+        verify(fileService, never()).deleteProfileImage("previous-image");
+    }
+
+    @Test
+    public void update_whenProfileKeepsChanging_throwsConflictAfterMaxAttempts() {
+        var user = createValidUser("user1");
+        user.setId(1);
+        var inDb = Mockito.mock(UserRepository.ProfileVersion.class);
+        when(inDb.getVersion()).thenReturn(5L);
+        when(userRepository.updateProfile(anyLong(), anyLong(), any(), any())).thenReturn(0);
+        when(userRepository.findProfileVersion(1)).thenReturn(Optional.of(inDb));
+        var userUpdate = new UserUpdateVM();
+        userUpdate.setDisplayName("updated-display");
+
+        assertThatThrownBy(() -> userService.update(user, userUpdate)).isInstanceOf(ConflictException.class);
+        verify(userRepository, times(UserService.MAX_UPDATE_ATTEMPTS)).updateProfile(anyLong(), anyLong(), any(), any());
+    }
+
+    private List<TransactionSynchronization> updateImageInTransaction() throws IOException {
+        var user = createValidUser("user1");
+        user.setId(1);
+        user.setImage("previous-image");
+        when(fileService.saveProfileImage(any())).thenReturn("new-image");
+        when(userRepository.updateProfile(anyLong(), anyLong(), any(), any())).thenReturn(1);
+        var userUpdate = new UserUpdateVM();
+        userUpdate.setDisplayName("updated-display");
+        userUpdate.setImage("image-content");
+
+        TransactionSynchronizationManager.initSynchronization();
+        userService.update(user, userUpdate);
+        return TransactionSynchronizationManager.getSynchronizations();
+    }
+}